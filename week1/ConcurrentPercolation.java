@@ -0,0 +1,217 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Thread-safe percolation system that many threads can open and query at once without locks.
+ * It uses a lock-free union-find in the manner of Anderson and Woll: roots are linked with
+ * compareAndSet, and find halves paths with compareAndSet, whose failures are harmless.
+ *
+ * As in Percolation, each root carries flags recording whether its component is connected to the
+ * top and/or bottom row. Flags only ever grow, so a thread that adds flags to a root retries on the
+ * new root whenever the old one was linked under another in the meantime.
+ *
+ * isOpen() and numberOfOpenSites() reflect an open as soon as it returns. isFull() and
+ * percolates() may lag behind while other opens are still merging components, and are exact once
+ * all opens have completed.
+ */
+
+public class ConcurrentPercolation {
+    private static final int CONNECTED_TO_TOP = 1;
+    private static final int CONNECTED_TO_BOTTOM = 2;
+    private static final int CONNECTED_TO_BOTH = CONNECTED_TO_TOP | CONNECTED_TO_BOTTOM;
+    private final AtomicIntegerArray parents;
+    private final AtomicIntegerArray connectionFlags; // Only complete on roots
+    private final AtomicLongArray openSites; // Bitmap with one bit per site
+    private final AtomicInteger openSiteCount = new AtomicInteger();
+    private final int gridSize;
+    private volatile boolean percolates;
+
+    /**
+     * Creates an n-by-n grid, with all sites initially blocked.
+     */
+
+    public ConcurrentPercolation(int n) {
+        validateGridSize(n);
+        gridSize = n;
+        parents = new AtomicIntegerArray(n * n);
+        for (int i = 0; i < n * n; i++)
+            parents.set(i, i);
+        connectionFlags = new AtomicIntegerArray(n * n);
+        openSites = new AtomicLongArray((n * n + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private void validateGridSize(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("Grid size must be at least 1.");
+    }
+
+    /**
+     * Opens the site (row, col) if it is not already open.
+     */
+
+    public void open(int row, int col) {
+        validateCoordinates(row, col);
+        int siteIndex = convertTo1DIndex(row, col);
+        if (!markSiteOpen(siteIndex))
+            return;
+        openSiteCount.incrementAndGet();
+        addConnectionFlagsToRootOf(siteIndex, connectionFlagsOfRow(row));
+        // Both this thread and one opening a neighbor set their own bit before reading the other's,
+        // so at least one of them sees the other as open and unites the two.
+        if (row > 1)
+            unionIfNeighborIsOpen(siteIndex, siteIndex - gridSize);
+        if (col < gridSize)
+            unionIfNeighborIsOpen(siteIndex, siteIndex + 1);
+        if (row < gridSize)
+            unionIfNeighborIsOpen(siteIndex, siteIndex + gridSize);
+        if (col > 1)
+            unionIfNeighborIsOpen(siteIndex, siteIndex - 1);
+    }
+
+    /**
+     * @return false if the site was already open.
+     */
+
+    private boolean markSiteOpen(int siteIndex) {
+        int word = siteIndex / Long.SIZE;
+        long bit = 1L << (siteIndex % Long.SIZE);
+        long bits = openSites.get(word);
+        while ((bits & bit) == 0) {
+            if (openSites.compareAndSet(word, bits, bits | bit))
+                return true;
+            bits = openSites.get(word);
+        }
+        return false;
+    }
+
+    private int connectionFlagsOfRow(int row) {
+        int flags = 0;
+        if (row == 1)
+            flags |= CONNECTED_TO_TOP;
+        if (row == gridSize)
+            flags |= CONNECTED_TO_BOTTOM;
+        return flags;
+    }
+
+    private void unionIfNeighborIsOpen(int siteIndex, int neighborIndex) {
+        if (isSiteOpen(neighborIndex))
+            union(siteIndex, neighborIndex);
+    }
+
+    /**
+     * Links the root of lower priority under the other one. Priorities are a fixed pseudorandom
+     * order of the indices, which rules out cycles and keeps the trees shallow without ranks.
+     */
+
+    private void union(int siteIndex1, int siteIndex2) {
+        while (true) {
+            int root1 = find(siteIndex1);
+            int root2 = find(siteIndex2);
+            if (root1 == root2)
+                return;
+            int child = hasLowerPriority(root1, root2) ? root1 : root2;
+            int parent = child == root1 ? root2 : root1;
+            if (parents.compareAndSet(child, child, parent)) {
+                // Reading the child's flags after the link catches flags added to it concurrently.
+                addConnectionFlagsToRootOf(parent, connectionFlags.get(child));
+                return;
+            }
+        }
+    }
+
+    private boolean hasLowerPriority(int root1, int root2) {
+        int priority1 = scramble(root1);
+        int priority2 = scramble(root2);
+        return priority1 < priority2 || (priority1 == priority2 && root1 < root2);
+    }
+
+    /**
+     * Bijective integer mixing function (the finalizer of MurmurHash3).
+     */
+
+    private static int scramble(int value) {
+        value ^= value >>> 16;
+        value *= 0x85ebca6b;
+        value ^= value >>> 13;
+        value *= 0xc2b2ae35;
+        value ^= value >>> 16;
+        return value;
+    }
+
+    /**
+     * Finds the root of the site, halving the path on the way.
+     */
+
+    private int find(int siteIndex) {
+        int parent = parents.get(siteIndex);
+        while (parent != siteIndex) {
+            int grandparent = parents.get(parent);
+            parents.compareAndSet(siteIndex, parent, grandparent);
+            siteIndex = grandparent;
+            parent = parents.get(siteIndex);
+        }
+        return siteIndex;
+    }
+
+    private void addConnectionFlagsToRootOf(int siteIndex, int flags) {
+        if (flags == 0)
+            return;
+        int root = find(siteIndex);
+        while (true) {
+            int rootFlags = connectionFlags.accumulateAndGet(root, flags, (a, b) -> a | b);
+            if ((rootFlags & CONNECTED_TO_BOTH) == CONNECTED_TO_BOTH)
+                percolates = true;
+            if (parents.get(root) == root)
+                return;
+            root = find(root);
+        }
+    }
+
+    public boolean isFull(int row, int col) {
+        validateCoordinates(row, col);
+        int siteIndex = convertTo1DIndex(row, col);
+        if (!isSiteOpen(siteIndex))
+            return false;
+        return (connectionFlags.get(find(siteIndex)) & CONNECTED_TO_TOP) != 0;
+    }
+
+    public boolean isOpen(int row, int col) {
+        validateCoordinates(row, col);
+        return isSiteOpen(convertTo1DIndex(row, col));
+    }
+
+    private boolean isSiteOpen(int siteIndex) {
+        return (openSites.get(siteIndex / Long.SIZE) & (1L << (siteIndex % Long.SIZE))) != 0;
+    }
+
+    private void validateCoordinates(int row, int col) {
+        if (row < 1 || row > gridSize || col < 1 || col > gridSize)
+            throw new IllegalArgumentException("One of the arguments is outside the range [1, n].");
+    }
+
+    private int convertTo1DIndex(int row, int col) {
+        return gridSize * (row - 1) + col - 1;
+    }
+
+    public int numberOfOpenSites() {
+        return openSiteCount.get();
+    }
+
+    public boolean percolates() {
+        return percolates;
+    }
+
+    public static void main(String[] args) {
+        int gridSize = Integer.parseInt(args[0]);
+        ConcurrentPercolation percolation = new ConcurrentPercolation(gridSize);
+        int[] siteOrder = StdRandom.permutation(gridSize * gridSize);
+        IntStream.range(0, siteOrder.length).parallel().forEach(i -> percolation
+                .open(siteOrder[i] / gridSize + 1, siteOrder[i] % gridSize + 1));
+        StdOut.println("open sites = " + percolation.numberOfOpenSites());
+        StdOut.println("percolates = " + percolation.percolates());
+    }
+}
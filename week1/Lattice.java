@@ -0,0 +1,247 @@
+/**
+ * Immutable lattice geometry for LatticePercolation. The neighbors of every site are precomputed
+ * into one flat table with a fixed number of slots per site, so that opening a site is a single
+ * loop over its slots. A slot without a neighbor (at an open boundary) holds siteCount(), an index
+ * one past the last site that percolation systems keep permanently blocked. The list of bonds is
+ * only built the first time bond percolation asks for it.
+ *
+ * Sites are numbered so that the percolation axis varies slowest: the top layer holds the first
+ * layerSize() sites and the bottom layer the last layerSize() sites. Periodic boundaries wrap the
+ * axes across the percolation axis, never the percolation axis itself.
+ */
+
+public class Lattice {
+    private static final int[][] SQUARE_OFFSETS = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
+    private static final int[][] TRIANGULAR_OFFSETS = {{-1, 0}, {-1, 1}, {0, 1}, {1, 0}, {1, -1},
+            {0, -1}};
+    private static final int[][] CUBIC_OFFSETS = {{-1, 0, 0}, {1, 0, 0}, {0, -1, 0}, {0, 1, 0},
+            {0, 0, -1}, {0, 0, 1}};
+    private final int siteCount;
+    private final int layerSize;
+    private final int degree;
+    private final int[] neighbors; // neighbors[site * degree + slot]
+    // Bond b joins bondEndpoints[2b] and bondEndpoints[2b + 1]; null until first needed
+    private volatile int[] bondEndpoints;
+
+    private Lattice(int siteCount, int layerSize, int degree, int[] neighbors) {
+        this.siteCount = siteCount;
+        this.layerSize = layerSize;
+        this.degree = degree;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * @return An n-by-n square lattice in which each site has 4 neighbors.
+     */
+
+    public static Lattice square(int n, boolean periodic) {
+        return createPlanar(n, periodic, SQUARE_OFFSETS);
+    }
+
+    /**
+     * @return An n-by-n triangular lattice in which each site has 6 neighbors. It is laid out as a
+     *         square lattice with one added diagonal per cell.
+     */
+
+    public static Lattice triangular(int n, boolean periodic) {
+        return createPlanar(n, periodic, TRIANGULAR_OFFSETS);
+    }
+
+    private static Lattice createPlanar(int n, boolean periodic, int[][] offsets) {
+        int degree = offsets.length;
+        validateSize(n, 2, degree);
+        int[] neighbors = new int[n * n * degree];
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                int base = (row * n + col) * degree;
+                for (int slot = 0; slot < degree; slot++)
+                    neighbors[base + slot] = planarNeighbor(n, periodic, row + offsets[slot][0],
+                            col + offsets[slot][1]);
+            }
+        }
+        return new Lattice(n * n, n, degree, neighbors);
+    }
+
+    /**
+     * @return The index of the site (row, col), wrapping col if periodic, or n * n if the site is
+     *         outside the lattice.
+     */
+
+    private static int planarNeighbor(int n, boolean periodic, int row, int col) {
+        if (periodic)
+            col = Math.floorMod(col, n);
+        if (row < 0 || row >= n || col < 0 || col >= n)
+            return n * n;
+        return row * n + col;
+    }
+
+    /**
+     * @return An n-by-n hexagonal (honeycomb) lattice in which each site has 3 neighbors. It is
+     *         laid out as a brick wall: every site links to its left and right neighbors, and to
+     *         the site below it if row + col is even or above it otherwise. Periodic lattices need
+     *         an even n so that this pattern stays consistent across the wrap.
+     */
+
+    public static Lattice hexagonal(int n, boolean periodic) {
+        validateSize(n, 2, 3);
+        if (periodic && n % 2 != 0)
+            throw new IllegalArgumentException("Periodic hexagonal lattices need an even size.");
+        int[] neighbors = new int[n * n * 3];
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                int base = (row * n + col) * 3;
+                int verticalRow = (row + col) % 2 == 0 ? row + 1 : row - 1;
+                neighbors[base] = planarNeighbor(n, periodic, row, col - 1);
+                neighbors[base + 1] = planarNeighbor(n, periodic, row, col + 1);
+                neighbors[base + 2] = planarNeighbor(n, periodic, verticalRow, col);
+            }
+        }
+        return new Lattice(n * n, n, 3, neighbors);
+    }
+
+    /**
+     * @return An n-by-n-by-n simple cubic lattice in which each site has 6 neighbors. Percolation
+     *         runs along the first axis, and periodic lattices wrap the other two.
+     */
+
+    public static Lattice cubic(int n, boolean periodic) {
+        int degree = CUBIC_OFFSETS.length;
+        validateSize(n, 3, degree);
+        int[] neighbors = new int[n * n * n * degree];
+        for (int layer = 0; layer < n; layer++) {
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++) {
+                    int base = ((layer * n + row) * n + col) * degree;
+                    for (int slot = 0; slot < degree; slot++) {
+                        int[] offset = CUBIC_OFFSETS[slot];
+                        neighbors[base + slot] = cubicNeighbor(n, periodic, layer + offset[0],
+                                row + offset[1], col + offset[2]);
+                    }
+                }
+            }
+        }
+        return new Lattice(n * n * n, n * n, degree, neighbors);
+    }
+
+    private static int cubicNeighbor(int n, boolean periodic, int layer, int row, int col) {
+        if (periodic) {
+            row = Math.floorMod(row, n);
+            col = Math.floorMod(col, n);
+        }
+        if (layer < 0 || layer >= n || row < 0 || row >= n || col < 0 || col >= n)
+            return n * n * n;
+        return (layer * n + row) * n + col;
+    }
+
+    /**
+     * Checks that n is positive and that the neighbor table, one slot per neighbor of each of the
+     * n^dimensionCount sites, can be indexed by an int. The bond list is never longer than the
+     * table.
+     */
+
+    private static void validateSize(int n, int dimensionCount, int degree) {
+        if (n < 1)
+            throw new IllegalArgumentException("Lattice size must be at least 1.");
+        try {
+            int siteCount = 1;
+            for (int dimension = 0; dimension < dimensionCount; dimension++)
+                siteCount = Math.multiplyExact(siteCount, n);
+            Math.multiplyExact(siteCount, degree);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Lattice size " + n + " is too large to index.");
+        }
+    }
+
+    /**
+     * Builds the bond list on first use. Threads sharing the lattice may race to build it, but
+     * they all build the same list, so whichever one is published is correct.
+     */
+
+    private int[] bondEndpointTable() {
+        int[] endpoints = bondEndpoints;
+        if (endpoints == null) {
+            endpoints = enumerateBonds();
+            bondEndpoints = endpoints;
+        }
+        return endpoints;
+    }
+
+    /**
+     * Lists every pair of distinct neighboring sites once, counting them first so that the list
+     * is allocated at its final length.
+     */
+
+    private int[] enumerateBonds() {
+        int bondCount = 0;
+        for (int site = 0; site < siteCount; site++)
+            for (int slot = 0; slot < degree; slot++)
+                if (isBondSlot(site, slot))
+                    bondCount++;
+        int[] endpoints = new int[2 * bondCount];
+        int bond = 0;
+        for (int site = 0; site < siteCount; site++) {
+            for (int slot = 0; slot < degree; slot++) {
+                if (isBondSlot(site, slot)) {
+                    endpoints[2 * bond] = site;
+                    endpoints[2 * bond + 1] = neighborAt(site, slot);
+                    bond++;
+                }
+            }
+        }
+        return endpoints;
+    }
+
+    /**
+     * A bond is listed from its lower site, in the first slot that holds it. Small periodic
+     * lattices can hold the same neighbor in several slots, or a site as its own neighbor, and
+     * those are skipped.
+     */
+
+    private boolean isBondSlot(int site, int slot) {
+        int neighbor = neighborAt(site, slot);
+        return site < neighbor && neighbor < siteCount && isFirstSlotOf(site, neighbor, slot);
+    }
+
+    private boolean isFirstSlotOf(int site, int neighbor, int slot) {
+        for (int earlierSlot = 0; earlierSlot < slot; earlierSlot++)
+            if (neighborAt(site, earlierSlot) == neighbor)
+                return false;
+        return true;
+    }
+
+    int neighborAt(int site, int slot) {
+        return neighbors[site * degree + slot];
+    }
+
+    int bondEndpoint(int bond, int end) {
+        return bondEndpointTable()[2 * bond + end];
+    }
+
+    boolean isInTopLayer(int site) {
+        return site < layerSize;
+    }
+
+    boolean isInBottomLayer(int site) {
+        return site >= siteCount - layerSize;
+    }
+
+    public int siteCount() {
+        return siteCount;
+    }
+
+    public int bondCount() {
+        return bondEndpointTable().length / 2;
+    }
+
+    /**
+     * @return The number of neighbor slots per site.
+     */
+
+    public int degree() {
+        return degree;
+    }
+
+    public int layerSize() {
+        return layerSize;
+    }
+}
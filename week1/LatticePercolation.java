@@ -0,0 +1,262 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Percolation on any Lattice, either by opening sites (site percolation) or by opening the bonds
+ * between always-open sites (bond percolation). The system percolates when an open path joins the
+ * top layer of the lattice to its bottom layer.
+ *
+ * Like Percolation, it uses one union-find forest whose roots carry the connection flags of their
+ * component. The state array has one extra, permanently blocked entry for the boundary slots of
+ * the lattice's neighbor table, so opening a site never checks coordinates.
+ */
+
+public class LatticePercolation {
+    public enum Kind {
+        SITE, BOND
+    }
+
+    private static final byte OPEN = 1;
+    private static final byte CONNECTED_TO_TOP = 2;
+    private static final byte CONNECTED_TO_BOTTOM = 4;
+    private static final byte CONNECTED_TO_BOTH = CONNECTED_TO_TOP | CONNECTED_TO_BOTTOM;
+    private final Lattice lattice;
+    private final Kind kind;
+    private final int[] parents;
+    private final int[] clusterSizes; // Only kept up to date on roots
+    private final byte[] siteStates; // Connection flags are only kept up to date on roots
+    private final boolean[] openBonds;
+    private int openSiteCount;
+    private int openBondCount;
+    private int clusterCount;
+    private int largestClusterSize;
+    private boolean percolates;
+
+    /**
+     * Creates a percolation system on the lattice. For site percolation all sites start blocked;
+     * for bond percolation all sites start open and all bonds blocked.
+     */
+
+    public LatticePercolation(Lattice lattice, Kind kind) {
+        validateArguments(lattice, kind);
+        this.lattice = lattice;
+        this.kind = kind;
+        int siteCount = lattice.siteCount();
+        parents = new int[siteCount];
+        for (int i = 0; i < siteCount; i++)
+            parents[i] = i;
+        clusterSizes = new int[siteCount];
+        siteStates = new byte[siteCount + 1];
+        openBonds = new boolean[kind == Kind.BOND ? lattice.bondCount() : 0];
+        if (kind == Kind.BOND)
+            markAllSitesOpen();
+    }
+
+    private void validateArguments(Lattice lattice, Kind kind) {
+        if (lattice == null || kind == null)
+            throw new IllegalArgumentException("Lattice and kind cannot be null.");
+    }
+
+    private void markAllSitesOpen() {
+        for (int site = 0; site < lattice.siteCount(); site++)
+            markSiteOpen(site);
+    }
+
+    private void markSiteOpen(int site) {
+        siteStates[site] = (byte) (OPEN | connectionFlagsOfLayerOf(site));
+        clusterSizes[site] = 1;
+        openSiteCount++;
+        clusterCount++;
+        largestClusterSize = Math.max(largestClusterSize, 1);
+        savePercolationOf(site);
+    }
+
+    private byte connectionFlagsOfLayerOf(int site) {
+        byte flags = 0;
+        if (lattice.isInTopLayer(site))
+            flags |= CONNECTED_TO_TOP;
+        if (lattice.isInBottomLayer(site))
+            flags |= CONNECTED_TO_BOTTOM;
+        return flags;
+    }
+
+    /**
+     * Opens the site if it is not already open. Only valid for site percolation.
+     */
+
+    public void openSite(int site) {
+        validateKind(Kind.SITE);
+        validateSite(site);
+        if (isSiteOpen(site))
+            return;
+        markSiteOpen(site);
+        for (int slot = 0; slot < lattice.degree(); slot++) {
+            int neighbor = lattice.neighborAt(site, slot);
+            if ((siteStates[neighbor] & OPEN) != 0)
+                union(site, neighbor);
+        }
+    }
+
+    /**
+     * Opens the bond if it is not already open. Only valid for bond percolation.
+     */
+
+    public void openBond(int bond) {
+        validateKind(Kind.BOND);
+        validateBond(bond);
+        if (openBonds[bond])
+            return;
+        openBonds[bond] = true;
+        openBondCount++;
+        union(lattice.bondEndpoint(bond, 0), lattice.bondEndpoint(bond, 1));
+    }
+
+    private void validateKind(Kind expectedKind) {
+        if (kind != expectedKind)
+            throw new IllegalStateException("Operation requires " + expectedKind + " percolation.");
+    }
+
+    /**
+     * Links the root of the smaller cluster to the root of the larger one and merges their flags.
+     */
+
+    private void union(int site1, int site2) {
+        int root1 = find(site1);
+        int root2 = find(site2);
+        if (root1 == root2)
+            return;
+        if (clusterSizes[root1] < clusterSizes[root2]) {
+            int smallerRoot = root1;
+            root1 = root2;
+            root2 = smallerRoot;
+        }
+        parents[root2] = root1;
+        clusterSizes[root1] += clusterSizes[root2];
+        clusterCount--;
+        largestClusterSize = Math.max(largestClusterSize, clusterSizes[root1]);
+        siteStates[root1] |= siteStates[root2];
+        savePercolationOf(root1);
+    }
+
+    /**
+     * Finds the root of the site, halving the path on the way.
+     */
+
+    private int find(int site) {
+        while (site != parents[site]) {
+            parents[site] = parents[parents[site]];
+            site = parents[site];
+        }
+        return site;
+    }
+
+    private void savePercolationOf(int root) {
+        if ((siteStates[root] & CONNECTED_TO_BOTH) == CONNECTED_TO_BOTH)
+            percolates = true;
+    }
+
+    public boolean isFull(int site) {
+        if (!isSiteOpen(site))
+            return false;
+        return (siteStates[find(site)] & CONNECTED_TO_TOP) != 0;
+    }
+
+    public boolean isSiteOpen(int site) {
+        validateSite(site);
+        return (siteStates[site] & OPEN) != 0;
+    }
+
+    public boolean isBondOpen(int bond) {
+        validateBond(bond);
+        return kind == Kind.SITE ? bothEndpointsOpen(bond) : openBonds[bond];
+    }
+
+    private boolean bothEndpointsOpen(int bond) {
+        int site1 = lattice.bondEndpoint(bond, 0);
+        int site2 = lattice.bondEndpoint(bond, 1);
+        return isSiteOpen(site1) && isSiteOpen(site2);
+    }
+
+    private void validateSite(int site) {
+        if (site < 0 || site >= lattice.siteCount())
+            throw new IllegalArgumentException("Site is outside the range [0, siteCount).");
+    }
+
+    private void validateBond(int bond) {
+        if (bond < 0 || bond >= lattice.bondCount())
+            throw new IllegalArgumentException("Bond is outside the range [0, bondCount).");
+    }
+
+    public int numberOfOpenSites() {
+        return openSiteCount;
+    }
+
+    public int numberOfOpenBonds() {
+        return openBondCount;
+    }
+
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * @return The number of connected components of open sites.
+     */
+
+    public int clusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * @return The number of sites in the largest connected component of open sites.
+     */
+
+    public int largestClusterSize() {
+        return largestClusterSize;
+    }
+
+    /**
+     * @return The average number of sites per connected component of open sites, or 0 if no site is
+     *         open.
+     */
+
+    public double meanClusterSize() {
+        return clusterCount == 0 ? 0.0 : (double) openSiteCount / clusterCount;
+    }
+
+    /**
+     * @return The number of sites in the connected component of the site, or 0 if it is blocked.
+     */
+
+    public int clusterSizeOf(int site) {
+        return isSiteOpen(site) ? clusterSizes[find(site)] : 0;
+    }
+
+    public static void main(String[] args) {
+        int size = Integer.parseInt(args[0]);
+        boolean periodic = args.length > 1 && args[1].equals("periodic");
+        printThreshold("square site", Lattice.square(size, periodic), Kind.SITE);
+        printThreshold("square bond", Lattice.square(size, periodic), Kind.BOND);
+        printThreshold("triangular site", Lattice.triangular(size, periodic), Kind.SITE);
+        printThreshold("hexagonal site", Lattice.hexagonal(size, periodic), Kind.SITE);
+        printThreshold("cubic site", Lattice.cubic(size, periodic), Kind.SITE);
+    }
+
+    /**
+     * Prints the fraction of sites or bonds open when one random ordering first percolates.
+     */
+
+    private static void printThreshold(String name, Lattice lattice, Kind kind) {
+        LatticePercolation percolation = new LatticePercolation(lattice, kind);
+        int elementCount = kind == Kind.SITE ? lattice.siteCount() : lattice.bondCount();
+        int[] order = StdRandom.permutation(elementCount);
+        int openedCount = 0;
+        while (!percolation.percolates()) {
+            if (kind == Kind.SITE)
+                percolation.openSite(order[openedCount++]);
+            else
+                percolation.openBond(order[openedCount++]);
+        }
+        StdOut.println(name + " threshold = " + (double) openedCount / elementCount);
+    }
+}
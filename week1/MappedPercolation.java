@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Percolation system whose union-find forest and site flags live in a memory-mapped file instead
+ * of on the heap. Sites are addressed with long indices, so the grid can hold billions of sites,
+ * and the file is a checkpoint that can be reopened later without replaying the opens.
+ *
+ * The file consists of a header followed by one long per site for the parent pointers, one byte
+ * per site for the flags and one byte per site for the union-by-rank ranks. Parent pointers are
+ * stored off by one so that a zero, which is what a freshly extended file contains, marks a root.
+ */
+
+public class MappedPercolation implements Closeable {
+    private static final long MAGIC = 0x50455243_4F4C4154L; // "PERCOLAT"
+    private static final int HEADER_SIZE = 32;
+    private static final int BYTES_PER_SITE = Long.BYTES + 2;
+    private static final byte OPEN = 1;
+    private static final byte CONNECTED_TO_TOP = 2;
+    private static final byte CONNECTED_TO_BOTTOM = 4;
+    private static final byte CONNECTED_TO_BOTH = CONNECTED_TO_TOP | CONNECTED_TO_BOTTOM;
+    private final FileChannel channel;
+    private final MappedRegion header;
+    private final MappedRegion parents;
+    private final MappedRegion siteStates; // Connection flags are kept up to date on roots
+    private final MappedRegion ranks;
+    private final long gridSize;
+    private final long siteCount;
+    private long openSiteCount;
+    private boolean percolates;
+
+    private MappedPercolation(FileChannel channel, long gridSize) throws IOException {
+        this.channel = channel;
+        this.gridSize = gridSize;
+        siteCount = gridSize * gridSize;
+        header = new MappedRegion(channel, 0, HEADER_SIZE);
+        parents = new MappedRegion(channel, HEADER_SIZE, siteCount * Long.BYTES);
+        siteStates = new MappedRegion(channel, HEADER_SIZE + siteCount * Long.BYTES, siteCount);
+        ranks = new MappedRegion(channel, HEADER_SIZE + siteCount * (Long.BYTES + 1), siteCount);
+    }
+
+    /**
+     * Creates an n-by-n grid backed by a new file at the given path, with all sites initially
+     * blocked. An existing file at the path is overwritten.
+     */
+
+    public static MappedPercolation create(Path path, long n) throws IOException {
+        validateGridSize(n);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedPercolation percolation = new MappedPercolation(channel, n);
+            percolation.header.putLong(0, MAGIC);
+            percolation.header.putLong(1, n);
+            percolation.checkpoint();
+            return percolation;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void validateGridSize(long n) {
+        if (n < 1)
+            throw new IllegalArgumentException("Grid size must be at least 1.");
+        if (n > (Long.MAX_VALUE - HEADER_SIZE) / BYTES_PER_SITE / n)
+            throw new IllegalArgumentException("Grid size is too large to be mapped.");
+    }
+
+    /**
+     * Reopens a grid from a file written by create() and saved with checkpoint() or close(). The
+     * file is checked before anything is mapped, since a read-write mapping would silently extend
+     * a truncated file with blocked sites.
+     */
+
+    public static MappedPercolation load(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long gridSize = readValidatedGridSize(channel, path);
+            MappedPercolation percolation = new MappedPercolation(channel, gridSize);
+            percolation.openSiteCount = percolation.header.getLong(2);
+            percolation.percolates = percolation.header.getLong(3) != 0;
+            return percolation;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long readValidatedGridSize(FileChannel channel, Path path) throws IOException {
+        if (channel.size() < HEADER_SIZE)
+            throw new IOException("File is too short to be a percolation checkpoint: " + path);
+        ByteBuffer header = ByteBuffer.allocate(2 * Long.BYTES);
+        channel.read(header, 0);
+        if (header.getLong(0) != MAGIC)
+            throw new IOException("File is not a percolation checkpoint: " + path);
+        long gridSize = header.getLong(Long.BYTES);
+        try {
+            validateGridSize(gridSize);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Checkpoint has an invalid grid size " + gridSize + ".", e);
+        }
+        if (channel.size() != HEADER_SIZE + gridSize * gridSize * BYTES_PER_SITE)
+            throw new IOException("Checkpoint size does not match its grid size " + gridSize + ".");
+        return gridSize;
+    }
+
+    /**
+     * Opens the site (row, col) if it is not already open.
+     */
+
+    public void open(long row, long col) {
+        validateCoordinates(row, col);
+        long siteIndex = convertTo1DIndex(row, col);
+        if (isSiteOpen(siteIndex))
+            return;
+        openSiteCount++;
+        byte state = (byte) (OPEN | connectionFlagsOfRow(row));
+        state |= connectSiteToNeighboringOpenSites(row, col, siteIndex);
+        saveStateOnRootOf(siteIndex, state);
+        siteStates.putByte(siteIndex, (byte) (siteStates.getByte(siteIndex) | OPEN));
+    }
+
+    private byte connectionFlagsOfRow(long row) {
+        byte flags = 0;
+        if (row == 1)
+            flags |= CONNECTED_TO_TOP;
+        if (row == gridSize)
+            flags |= CONNECTED_TO_BOTTOM;
+        return flags;
+    }
+
+    /**
+     * @return The union of the connection flags of the neighboring components.
+     */
+
+    private byte connectSiteToNeighboringOpenSites(long row, long col, long siteIndex) {
+        byte flags = 0;
+        if (row > 1)
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex - gridSize);
+        if (col < gridSize)
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex + 1);
+        if (row < gridSize)
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex + gridSize);
+        if (col > 1)
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex - 1);
+        return flags;
+    }
+
+    private byte connectSiteToNeighborIfOpen(long siteIndex, long neighborIndex) {
+        if (!isSiteOpen(neighborIndex))
+            return 0;
+        long neighborRoot = find(neighborIndex);
+        long siteRoot = find(siteIndex);
+        if (neighborRoot == siteRoot)
+            return 0;
+        link(neighborRoot, siteRoot);
+        return siteStates.getByte(neighborRoot);
+    }
+
+    /**
+     * Finds the root of the site, halving the path on the way. Pointers that already lead to the
+     * root are not rewritten, so that open() does not dirty mapped pages needlessly.
+     */
+
+    private long find(long siteIndex) {
+        long parent = parentOf(siteIndex);
+        while (parent != siteIndex) {
+            long grandparent = parentOf(parent);
+            if (grandparent != parent)
+                setParent(siteIndex, grandparent);
+            siteIndex = grandparent;
+            parent = parentOf(siteIndex);
+        }
+        return siteIndex;
+    }
+
+    /**
+     * Finds the root of the site without compressing the path, so that queries never dirty mapped
+     * pages that checkpoint() would then have to write back. Union by rank keeps the path to the
+     * root logarithmic in the size of the component.
+     */
+
+    private long findWithoutCompression(long siteIndex) {
+        long parent = parentOf(siteIndex);
+        while (parent != siteIndex) {
+            siteIndex = parent;
+            parent = parentOf(siteIndex);
+        }
+        return siteIndex;
+    }
+
+    private long parentOf(long siteIndex) {
+        long storedParent = parents.getLong(siteIndex);
+        return storedParent == 0 ? siteIndex : storedParent - 1;
+    }
+
+    private void setParent(long siteIndex, long parent) {
+        parents.putLong(siteIndex, parent == siteIndex ? 0 : parent + 1);
+    }
+
+    private void link(long root1, long root2) {
+        byte rank1 = ranks.getByte(root1);
+        byte rank2 = ranks.getByte(root2);
+        if (rank1 < rank2) {
+            setParent(root1, root2);
+        } else {
+            setParent(root2, root1);
+            if (rank1 == rank2)
+                ranks.putByte(root1, (byte) (rank1 + 1));
+        }
+    }
+
+    private void saveStateOnRootOf(long siteIndex, byte state) {
+        long root = find(siteIndex);
+        byte rootState = (byte) (siteStates.getByte(root) | state);
+        siteStates.putByte(root, rootState);
+        if ((rootState & CONNECTED_TO_BOTH) == CONNECTED_TO_BOTH)
+            percolates = true;
+    }
+
+    public boolean isFull(long row, long col) {
+        validateCoordinates(row, col);
+        long siteIndex = convertTo1DIndex(row, col);
+        if (!isSiteOpen(siteIndex))
+            return false;
+        return (siteStates.getByte(findWithoutCompression(siteIndex)) & CONNECTED_TO_TOP) != 0;
+    }
+
+    public boolean isOpen(long row, long col) {
+        validateCoordinates(row, col);
+        return isSiteOpen(convertTo1DIndex(row, col));
+    }
+
+    private boolean isSiteOpen(long siteIndex) {
+        return (siteStates.getByte(siteIndex) & OPEN) != 0;
+    }
+
+    private void validateCoordinates(long row, long col) {
+        if (row < 1 || row > gridSize || col < 1 || col > gridSize)
+            throw new IllegalArgumentException("One of the arguments is outside the range [1, n].");
+    }
+
+    private long convertTo1DIndex(long row, long col) {
+        return gridSize * (row - 1) + col - 1;
+    }
+
+    public long numberOfOpenSites() {
+        return openSiteCount;
+    }
+
+    public boolean percolates() {
+        return percolates;
+    }
+
+    public long gridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Saves the counters to the header and flushes every mapped page to disk, after which the file
+     * can be reopened with load().
+     */
+
+    public void checkpoint() {
+        header.putLong(2, openSiteCount);
+        header.putLong(3, percolates ? 1 : 0);
+        header.force();
+        parents.force();
+        siteStates.force();
+        ranks.force();
+    }
+
+    /**
+     * Checkpoints the grid and closes the underlying file.
+     */
+
+    public void close() throws IOException {
+        checkpoint();
+        channel.close();
+    }
+
+    /**
+     * A region of the file mapped as a sequence of buffers of at most CHUNK_SIZE bytes each, since
+     * a single MappedByteBuffer cannot exceed 2 GB. The chunk size is a multiple of 8, so a long
+     * never straddles two chunks.
+     */
+
+    private static class MappedRegion {
+        private static final int CHUNK_SHIFT = 30;
+        private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+        private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+        private final MappedByteBuffer[] chunks;
+
+        MappedRegion(FileChannel channel, long offset, long length) throws IOException {
+            chunks = new MappedByteBuffer[(int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long chunkOffset = (long) i << CHUNK_SHIFT;
+                long chunkLength = Math.min(CHUNK_SIZE, length - chunkOffset);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset + chunkOffset,
+                        chunkLength);
+            }
+        }
+
+        long getLong(long index) {
+            long position = index * Long.BYTES;
+            return chunks[chunkOf(position)].getLong(offsetInChunk(position));
+        }
+
+        void putLong(long index, long value) {
+            long position = index * Long.BYTES;
+            chunks[chunkOf(position)].putLong(offsetInChunk(position), value);
+        }
+
+        byte getByte(long index) {
+            return chunks[chunkOf(index)].get(offsetInChunk(index));
+        }
+
+        void putByte(long index, byte value) {
+            chunks[chunkOf(index)].put(offsetInChunk(index), value);
+        }
+
+        private int chunkOf(long position) {
+            return (int) (position >>> CHUNK_SHIFT);
+        }
+
+        private int offsetInChunk(long position) {
+            return (int) (position & CHUNK_MASK);
+        }
+
+        void force() {
+            for (MappedByteBuffer chunk : chunks)
+                chunk.force();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args[0]);
+        long gridSize = Long.parseLong(args[1]);
+        try (MappedPercolation percolation = create(path, gridSize)) {
+            for (long row = 1; row <= gridSize; row++)
+                percolation.open(row, 1);
+            StdOut.println("percolates = " + percolation.percolates());
+        }
+        try (MappedPercolation percolation = load(path)) {
+            StdOut.println("open sites after reload = " + percolation.numberOfOpenSites());
+        }
+    }
+}
@@ -1,24 +1,66 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Percolation system backed by a single union-find forest. Instead of virtual top and bottom
+ * nodes, each root carries bit flags recording whether its component is connected to the top
+ * and/or bottom row, which avoids backwash without a second forest.
+ *
+ * The forest uses union by size without path compression, so every change it makes on an open is
+ * a handful of array writes. While a checkpoint is active these writes are recorded in an undo log,
+ * which lets rollback() revert k speculative opens in O(k log n).
+ */
 
 public class Percolation {
-    private static final boolean OPEN = true;
-    private static final boolean BLOCKED = !OPEN;
-    private static final int TOP_VIRTUAL_INDEX = 0;
-    private final WeightedQuickUnionUF forest1, forest2;
-    private boolean[] sites; // sites[index] indicates whether a site is OPEN or BLOCKED
+    private static final byte OPEN = 1;
+    private static final byte CONNECTED_TO_TOP = 2;
+    private static final byte CONNECTED_TO_BOTTOM = 4;
+    private static final byte CONNECTED_TO_BOTH = CONNECTED_TO_TOP | CONNECTED_TO_BOTTOM;
+    private static final int PARENT_WRITE = 0;
+    private static final int CLUSTER_SIZE_WRITE = 1;
+    private static final int SITE_STATE_WRITE = 2;
+    private final int[] parents;
+    private final byte[] siteStates; // Connection flags are only kept up to date on roots
+    private final int[] clusterSizes; // Only kept up to date on roots
+    private final int gridSize;
     private int openSiteCount;
+    private int clusterCount;
+    private int largestClusterSize;
+    private boolean percolates;
+    private final ArrayList<Checkpoint> checkpoints = new ArrayList<>();
+    private int[] undoLog = new int[0]; // Triples of (write kind, index, previous value)
+    private int undoLogLength;
+
+    private static class Checkpoint {
+        private final int undoLogLength;
+        private final int openSiteCount;
+        private final int clusterCount;
+        private final int largestClusterSize;
+        private final boolean percolates;
+
+        Checkpoint(Percolation percolation) {
+            undoLogLength = percolation.undoLogLength;
+            openSiteCount = percolation.openSiteCount;
+            clusterCount = percolation.clusterCount;
+            largestClusterSize = percolation.largestClusterSize;
+            percolates = percolation.percolates;
+        }
+    }
 
     /**
      * Creates an n-by-n grid, with all sites initially blocked.
-     * 
+     *
      * @param n - Grid size
      */
 
     public Percolation(int n) {
         validateGridSize(n);
-        forest1 = new WeightedQuickUnionUF(1 + n * n); // With top virtual node
-        forest2 = new WeightedQuickUnionUF(2 + n * n); // With both virtual nodes
-        initialiseGrid(n);
+        gridSize = n;
+        parents = new int[n * n];
+        for (int i = 0; i < parents.length; i++)
+            parents[i] = i;
+        siteStates = new byte[n * n];
+        clusterSizes = new int[n * n];
     }
 
     private void validateGridSize(int n) {
@@ -26,76 +68,341 @@ public class Percolation {
             throw new IllegalArgumentException("Grid size must be at least 1.");
     }
 
-    private void initialiseGrid(int gridSize) {
-        sites = new boolean[gridSize * gridSize + 2];
-        sites[TOP_VIRTUAL_INDEX] = OPEN;
-        for (int i = 1; i < bottomVirtualIndex(); i += 1)
-            sites[i] = BLOCKED;
-        sites[bottomVirtualIndex()] = OPEN;
-    }
-
     /**
      * Opens the site (row, col) if it is not already open.
      */
 
     public void open(int row, int col) {
-        if (!isOpen(row, col)) {
-            int siteIndex = convertTo1DIndex(row, col);
-            openSite(siteIndex);
+        validateCoordinates(row, col);
+        openSiteIfBlocked(convertTo1DIndex(row, col));
+    }
+
+    /**
+     * Opens the site with the given row-major index in [0, n * n) if it is not already open. The
+     * site (row, col) has index n * (row - 1) + (col - 1).
+     */
+
+    public void openIndex(int siteIndex) {
+        validateSiteIndex(siteIndex);
+        openSiteIfBlocked(siteIndex);
+    }
+
+    /**
+     * Opens each of the sites with the given row-major indices. The indices are all validated
+     * before any site is opened.
+     */
+
+    public void openAll(int[] siteIndices) {
+        validateSiteIndices(siteIndices);
+        for (int siteIndex : siteIndices)
+            openSiteIfBlocked(siteIndex);
+    }
+
+    /**
+     * Opens every site whose bit is set in a row-major bitmap, in which site i is bit i % 64 of
+     * openSiteBits[i / 64]. Rather than opening the sites one by one, it labels the components with
+     * a two-pass scan: the first pass unites each open site with its open left and upper neighbors,
+     * which have already been scanned, and the second collects the connection flags of the first
+     * and last rows on their roots. The grid must not have any open sites or checkpoints yet, and
+     * the bitmap is validated before any site is opened.
+     */
+
+    void openAllFromBitmap(long[] openSiteBits) {
+        validateBulkOpeningAllowed();
+        validateSiteBitmap(openSiteBits);
+        for (int word = 0; word < openSiteBits.length; word++)
+            for (long bits = openSiteBits[word]; bits != 0; bits &= bits - 1)
+                openScannedSite(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+        for (int col = 0; col < gridSize; col++) {
+            saveConnectionFlagsOfRowOf(col);
+            saveConnectionFlagsOfRowOf(siteStates.length - gridSize + col);
+        }
+    }
+
+    private void validateBulkOpeningAllowed() {
+        if (!checkpoints.isEmpty())
+            throw new IllegalStateException("Bulk opening is not allowed during a checkpoint.");
+        if (openSiteCount > 0)
+            throw new IllegalStateException("Bulk opening requires a grid without open sites.");
+    }
+
+    /**
+     * The bitmap may be shorter than the grid, leaving the remaining sites blocked, but it must not
+     * have more words than the grid needs or any bit set past site n * n - 1.
+     */
+
+    private void validateSiteBitmap(long[] openSiteBits) {
+        if (openSiteBits == null)
+            throw new IllegalArgumentException("Site bitmap cannot be null.");
+        int wordCount = (siteStates.length - 1) / Long.SIZE + 1;
+        if (openSiteBits.length > wordCount)
+            throw new IllegalArgumentException("Site bitmap has more words than the grid needs.");
+        int bitsInLastWord = siteStates.length % Long.SIZE;
+        if (openSiteBits.length == wordCount && bitsInLastWord != 0
+                && openSiteBits[wordCount - 1] >>> bitsInLastWord != 0)
+            throw new IllegalArgumentException("Site bitmap has bits set past the last site.");
+    }
+
+    private void openScannedSite(int siteIndex) {
+        openSiteCount++;
+        addSingleSiteCluster(siteIndex);
+        siteStates[siteIndex] = OPEN;
+        if (siteIndex % gridSize > 0)
+            connectScannedSiteToNeighborIfOpen(siteIndex, siteIndex - 1);
+        if (!siteIsInFirstRow(siteIndex))
+            connectScannedSiteToNeighborIfOpen(siteIndex, siteIndex - gridSize);
+    }
+
+    private void connectScannedSiteToNeighborIfOpen(int siteIndex, int neighborIndex) {
+        if (!isSiteOpen(neighborIndex))
+            return;
+        int neighborRoot = find(neighborIndex);
+        int siteRoot = find(siteIndex);
+        if (neighborRoot != siteRoot)
+            mergeClusters(neighborRoot, siteRoot);
+    }
+
+    private void saveConnectionFlagsOfRowOf(int siteIndex) {
+        if (isSiteOpen(siteIndex))
+            saveStateOnRootOf(siteIndex, connectionFlagsOfRowOf(siteIndex));
+    }
+
+    private void openSiteIfBlocked(int siteIndex) {
+        if (!isSiteOpen(siteIndex)) {
             openSiteCount++;
-            if (siteIsInFirstRow(row))
-                connectSiteToTopVirtual(siteIndex);
-            if (siteIsInLastRow(row))
-                connectSiteToBottomVirtual(siteIndex);
-            connectSiteToNeighboringOpenSites(row, col, siteIndex);
+            addSingleSiteCluster(siteIndex);
+            byte state = (byte) (OPEN | connectionFlagsOfRowOf(siteIndex));
+            state |= connectSiteToNeighboringOpenSites(siteIndex);
+            saveStateOnRootOf(siteIndex, state);
+            setSiteState(siteIndex, (byte) (siteStates[siteIndex] | OPEN));
         }
     }
 
-    private void openSite(int siteIndex) {
-        sites[siteIndex] = OPEN;
+    private void addSingleSiteCluster(int siteIndex) {
+        setClusterSize(siteIndex, 1);
+        clusterCount++;
+        largestClusterSize = Math.max(largestClusterSize, 1);
     }
 
-    private boolean siteIsInFirstRow(int row) {
-        return row == 1;
+    private byte connectionFlagsOfRowOf(int siteIndex) {
+        byte flags = 0;
+        if (siteIsInFirstRow(siteIndex))
+            flags |= CONNECTED_TO_TOP;
+        if (siteIsInLastRow(siteIndex))
+            flags |= CONNECTED_TO_BOTTOM;
+        return flags;
     }
 
-    private boolean siteIsInLastRow(int row) {
-        return row == gridSize();
+    private boolean siteIsInFirstRow(int siteIndex) {
+        return siteIndex < gridSize;
     }
 
-    private void connectSiteToTopVirtual(int siteIndex) {
-        forest1.union(TOP_VIRTUAL_INDEX, siteIndex);
-        forest2.union(TOP_VIRTUAL_INDEX, siteIndex);
+    private boolean siteIsInLastRow(int siteIndex) {
+        return siteIndex >= siteStates.length - gridSize;
     }
 
-    private void connectSiteToBottomVirtual(int siteIndex) {
-        forest2.union(bottomVirtualIndex(), siteIndex);
+    /**
+     * Unites the site with each of its open neighbors.
+     *
+     * @return The union of the connection flags of the neighboring components.
+     */
+
+    private byte connectSiteToNeighboringOpenSites(int siteIndex) {
+        int col = siteIndex % gridSize;
+        byte flags = 0;
+        if (!siteIsInFirstRow(siteIndex))
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex - gridSize);
+        if (col < gridSize - 1)
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex + 1);
+        if (!siteIsInLastRow(siteIndex))
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex + gridSize);
+        if (col > 0)
+            flags |= connectSiteToNeighborIfOpen(siteIndex, siteIndex - 1);
+        return flags;
     }
 
-    private void connectSiteToNeighboringOpenSites(int row, int col, int siteIndex) {
-        // Each delta represents the {vertical, horizontal} distance between the site and one of its
-        // neighbors (4 max).
-        int[][] deltas = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
-        for (int[] delta : deltas) {
-            int i = row + delta[0];
-            int j = col + delta[1];
-            if (areValidCoordinates(i, j) && isOpen(i, j)) {
-                forest1.union(convertTo1DIndex(i, j), siteIndex);
-                forest2.union(convertTo1DIndex(i, j), siteIndex);
-            }
+    private byte connectSiteToNeighborIfOpen(int siteIndex, int neighborIndex) {
+        if ((siteStates[neighborIndex] & OPEN) == 0)
+            return 0;
+        int neighborRoot = find(neighborIndex);
+        int siteRoot = find(siteIndex);
+        if (neighborRoot == siteRoot)
+            return 0; // The neighbor's flags have already been collected through another neighbor
+        mergeClusters(neighborRoot, siteRoot);
+        return siteStates[neighborRoot];
+    }
+
+    private int find(int siteIndex) {
+        while (siteIndex != parents[siteIndex])
+            siteIndex = parents[siteIndex];
+        return siteIndex;
+    }
+
+    /**
+     * Links the root of the smaller cluster to the root of the larger one.
+     */
+
+    private void mergeClusters(int root1, int root2) {
+        int mergedSize = clusterSizes[root1] + clusterSizes[root2];
+        if (clusterSizes[root1] < clusterSizes[root2]) {
+            setParent(root1, root2);
+            setClusterSize(root2, mergedSize);
+        } else {
+            setParent(root2, root1);
+            setClusterSize(root1, mergedSize);
         }
+        clusterCount--;
+        largestClusterSize = Math.max(largestClusterSize, mergedSize);
+    }
+
+    private void saveStateOnRootOf(int siteIndex, byte state) {
+        int root = find(siteIndex);
+        setSiteState(root, (byte) (siteStates[root] | state));
+        if ((siteStates[root] & CONNECTED_TO_BOTH) == CONNECTED_TO_BOTH)
+            percolates = true;
+    }
+
+    private void setParent(int siteIndex, int parent) {
+        logWrite(PARENT_WRITE, siteIndex, parents[siteIndex]);
+        parents[siteIndex] = parent;
+    }
+
+    private void setClusterSize(int siteIndex, int clusterSize) {
+        logWrite(CLUSTER_SIZE_WRITE, siteIndex, clusterSizes[siteIndex]);
+        clusterSizes[siteIndex] = clusterSize;
+    }
+
+    private void setSiteState(int siteIndex, byte state) {
+        logWrite(SITE_STATE_WRITE, siteIndex, siteStates[siteIndex]);
+        siteStates[siteIndex] = state;
+    }
+
+    private void logWrite(int writeKind, int index, int previousValue) {
+        if (checkpoints.isEmpty())
+            return;
+        if (undoLogLength + 3 > undoLog.length)
+            undoLog = Arrays.copyOf(undoLog, Math.max(3 * 16, 2 * undoLog.length));
+        undoLog[undoLogLength++] = writeKind;
+        undoLog[undoLogLength++] = index;
+        undoLog[undoLogLength++] = previousValue;
+    }
+
+    /**
+     * Saves the current state of the grid so that the opens made after this call can be undone
+     * with rollback(). Checkpoints can be nested.
+     */
+
+    public void checkpoint() {
+        checkpoints.add(new Checkpoint(this));
+    }
+
+    /**
+     * Undoes every open made since the most recent checkpoint and discards that checkpoint.
+     */
+
+    public void rollback() {
+        Checkpoint checkpoint = popCheckpoint();
+        while (undoLogLength > checkpoint.undoLogLength)
+            undoLastWrite();
+        openSiteCount = checkpoint.openSiteCount;
+        clusterCount = checkpoint.clusterCount;
+        largestClusterSize = checkpoint.largestClusterSize;
+        percolates = checkpoint.percolates;
+        discardUndoLogIfNoCheckpointsRemain();
+    }
+
+    private void undoLastWrite() {
+        int previousValue = undoLog[--undoLogLength];
+        int index = undoLog[--undoLogLength];
+        int writeKind = undoLog[--undoLogLength];
+        if (writeKind == PARENT_WRITE)
+            parents[index] = previousValue;
+        else if (writeKind == CLUSTER_SIZE_WRITE)
+            clusterSizes[index] = previousValue;
+        else
+            siteStates[index] = (byte) previousValue;
+    }
+
+    /**
+     * Discards the most recent checkpoint and keeps the opens made since. They can still be undone
+     * by rolling back an enclosing checkpoint.
+     */
+
+    public void commit() {
+        popCheckpoint();
+        discardUndoLogIfNoCheckpointsRemain();
+    }
+
+    private Checkpoint popCheckpoint() {
+        if (checkpoints.isEmpty())
+            throw new IllegalStateException("There is no checkpoint to return to.");
+        return checkpoints.remove(checkpoints.size() - 1);
+    }
+
+    private void discardUndoLogIfNoCheckpointsRemain() {
+        if (checkpoints.isEmpty())
+            undoLogLength = 0;
+    }
+
+    /**
+     * @return Whether the system would percolate if the sites with the given row-major indices were
+     *         opened. The grid itself is left unchanged.
+     */
+
+    public boolean wouldPercolateWith(int[] siteIndices) {
+        validateSiteIndices(siteIndices);
+        checkpoint();
+        for (int siteIndex : siteIndices)
+            openSiteIfBlocked(siteIndex);
+        boolean wouldPercolate = percolates;
+        rollback();
+        return wouldPercolate;
     }
 
     public boolean isFull(int row, int col) {
-        if (!isOpen(row, col) || openSiteCount < row)
+        validateCoordinates(row, col);
+        return isSiteFull(convertTo1DIndex(row, col));
+    }
+
+    /**
+     * @return For each of the given row-major site indices, whether that site is full.
+     */
+
+    public boolean[] isFull(int[] siteIndices) {
+        validateSiteIndices(siteIndices);
+        boolean[] full = new boolean[siteIndices.length];
+        for (int i = 0; i < siteIndices.length; i++)
+            full[i] = isSiteFull(siteIndices[i]);
+        return full;
+    }
+
+    private boolean isSiteFull(int siteIndex) {
+        if (!isSiteOpen(siteIndex))
             return false;
-        // To prevent backwash, we need to ignore the forest with the bottom virtual.
-        return forest1.connected(TOP_VIRTUAL_INDEX, convertTo1DIndex(row, col));
+        // Only the root's flags are kept up to date, so bottom connections cannot cause backwash.
+        int root = find(siteIndex);
+        return (siteStates[root] & CONNECTED_TO_TOP) != 0;
     }
 
     public boolean isOpen(int row, int col) {
         validateCoordinates(row, col);
-        return sites[convertTo1DIndex(row, col)] == OPEN;
+        return isSiteOpen(convertTo1DIndex(row, col));
+    }
+
+    private boolean isSiteOpen(int siteIndex) {
+        return (siteStates[siteIndex] & OPEN) != 0;
+    }
+
+    private void validateSiteIndices(int[] siteIndices) {
+        if (siteIndices == null)
+            throw new IllegalArgumentException("Site indices array cannot be null.");
+        for (int siteIndex : siteIndices)
+            validateSiteIndex(siteIndex);
+    }
+
+    private void validateSiteIndex(int siteIndex) {
+        if (siteIndex < 0 || siteIndex >= siteStates.length)
+            throw new IllegalArgumentException("Site index is outside the range [0, n * n).");
     }
 
     private void validateCoordinates(int row, int col) {
@@ -104,11 +411,11 @@ public class Percolation {
     }
 
     private boolean areValidCoordinates(int row, int col) {
-        return (row >= 1 && row <= gridSize() && col >= 1 && col <= gridSize());
+        return (row >= 1 && row <= gridSize && col >= 1 && col <= gridSize);
     }
 
     private int convertTo1DIndex(int row, int col) {
-        return (gridSize() * (row - 1) + col);
+        return (gridSize * (row - 1) + col - 1);
     }
 
     public int numberOfOpenSites() {
@@ -116,17 +423,42 @@ public class Percolation {
     }
 
     public boolean percolates() {
-        if (openSiteCount < gridSize())
-            return false;
-        // System percolates if bottom virtual is connected to top virtual
-        return forest2.connected(TOP_VIRTUAL_INDEX, bottomVirtualIndex());
+        return percolates;
     }
 
-    private int bottomVirtualIndex() {
-        return gridSize() * gridSize() + 1;
+    /**
+     * @return The number of connected components of open sites.
+     */
+
+    public int clusterCount() {
+        return clusterCount;
     }
 
-    private int gridSize() {
-        return (int) Math.sqrt(sites.length - 2);
+    /**
+     * @return The number of sites in the largest connected component of open sites.
+     */
+
+    public int largestClusterSize() {
+        return largestClusterSize;
+    }
+
+    /**
+     * @return The average number of sites per connected component of open sites, or 0 if no site is
+     *         open.
+     */
+
+    public double meanClusterSize() {
+        return clusterCount == 0 ? 0.0 : (double) openSiteCount / clusterCount;
+    }
+
+    /**
+     * @return The number of sites in the connected component of the site (row, col), or 0 if the
+     *         site is blocked.
+     */
+
+    public int clusterSizeOf(int row, int col) {
+        validateCoordinates(row, col);
+        int siteIndex = convertTo1DIndex(row, col);
+        return isSiteOpen(siteIndex) ? clusterSizes[find(siteIndex)] : 0;
     }
 }
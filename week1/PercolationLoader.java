@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Builds Percolation grids from memory-mapped binary files in one linear pass, instead of
+ * replaying an open() call per site. Both formats start with the grid size n as a big-endian int.
+ *
+ * A bit grid follows it with ceil(n * n / 8) bytes in which site i (row-major, 0-based) is open if
+ * bit i % 8 of byte i / 8 is set. A site index list follows it with big-endian ints, each the
+ * row-major 0-based index of an open site.
+ */
+
+public class PercolationLoader {
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final long MAX_MAPPED_CHUNK_SIZE = 1L << 30;
+
+    private PercolationLoader() {
+    }
+
+    public static Percolation loadBitGrid(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int gridSize = readGridSize(channel);
+            long[] openSiteBits = new long[bitmapLength(gridSize)];
+            long byteCount = ((long) gridSize * gridSize + Byte.SIZE - 1) / Byte.SIZE;
+            validateFileSize(channel, HEADER_SIZE + byteCount);
+            readBitGrid(channel, byteCount, openSiteBits);
+            validateNoBitsBeyondGrid(openSiteBits, gridSize);
+            return createPercolation(gridSize, openSiteBits);
+        }
+    }
+
+    /**
+     * The bytes of the file are little-endian words of the bitmap, so all full words are read as
+     * longs and only the last few bytes one at a time.
+     */
+
+    private static void readBitGrid(FileChannel channel, long byteCount, long[] openSiteBits)
+            throws IOException {
+        for (long offset = 0; offset < byteCount; offset += MAX_MAPPED_CHUNK_SIZE) {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + offset, Math.min(MAX_MAPPED_CHUNK_SIZE, byteCount - offset));
+            chunk.order(ByteOrder.LITTLE_ENDIAN);
+            int word = (int) (offset / Long.BYTES);
+            while (chunk.remaining() >= Long.BYTES)
+                openSiteBits[word++] = chunk.getLong();
+            for (int shift = 0; chunk.hasRemaining(); shift += Byte.SIZE)
+                openSiteBits[word] |= (chunk.get() & 0xFFL) << shift;
+        }
+    }
+
+    private static void validateNoBitsBeyondGrid(long[] openSiteBits, int gridSize)
+            throws IOException {
+        int bitsInLastWord = gridSize * gridSize % Long.SIZE;
+        if (bitsInLastWord != 0 && openSiteBits[openSiteBits.length - 1] >>> bitsInLastWord != 0)
+            throw new IOException("Bit grid has bits set beyond its last site.");
+    }
+
+    public static Percolation loadSiteIndices(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int gridSize = readGridSize(channel);
+            long[] openSiteBits = new long[bitmapLength(gridSize)];
+            readSiteIndices(channel, gridSize, openSiteBits);
+            return createPercolation(gridSize, openSiteBits);
+        }
+    }
+
+    private static void readSiteIndices(FileChannel channel, int gridSize, long[] openSiteBits)
+            throws IOException {
+        long byteCount = channel.size() - HEADER_SIZE;
+        if (byteCount % Integer.BYTES != 0)
+            throw new IOException("Site index list has a truncated entry.");
+        for (long offset = 0; offset < byteCount; offset += MAX_MAPPED_CHUNK_SIZE) {
+            IntBuffer indices = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset,
+                    Math.min(MAX_MAPPED_CHUNK_SIZE, byteCount - offset)).asIntBuffer();
+            while (indices.hasRemaining())
+                setBit(openSiteBits, validateSiteIndex(indices.get(), gridSize));
+        }
+    }
+
+    private static int validateSiteIndex(int siteIndex, int gridSize) throws IOException {
+        if (siteIndex < 0 || siteIndex >= gridSize * gridSize)
+            throw new IOException("Site index " + siteIndex + " is outside the range [0, n * n).");
+        return siteIndex;
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index / Long.SIZE] |= 1L << (index % Long.SIZE);
+    }
+
+    private static int readGridSize(FileChannel channel) throws IOException {
+        validateFileSize(channel, HEADER_SIZE);
+        int gridSize = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).getInt();
+        if (gridSize < 1 || gridSize > 46340) // 46340 * 46340 is the largest square below 2^31
+            throw new IOException("Grid size " + gridSize + " is not in the range [1, 46340].");
+        return gridSize;
+    }
+
+    private static void validateFileSize(FileChannel channel, long expectedSize)
+            throws IOException {
+        if (channel.size() < expectedSize)
+            throw new IOException("File is shorter than its header requires.");
+    }
+
+    private static int bitmapLength(int gridSize) {
+        return (int) (((long) gridSize * gridSize + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    private static Percolation createPercolation(int gridSize, long[] openSiteBits) {
+        Percolation percolation = new Percolation(gridSize);
+        percolation.openAllFromBitmap(openSiteBits);
+        return percolation;
+    }
+
+    /**
+     * Usage: PercolationLoader bits|indices file
+     */
+
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args[1]);
+        Percolation percolation = args[0].equals("bits") ? loadBitGrid(path)
+                : loadSiteIndices(path);
+        StdOut.println("open sites = " + percolation.numberOfOpenSites());
+        StdOut.println("clusters = " + percolation.clusterCount());
+        StdOut.println("largest cluster = " + percolation.largestClusterSize());
+        StdOut.println("percolates = " + percolation.percolates());
+    }
+}
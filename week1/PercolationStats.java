@@ -1,10 +1,17 @@
+import java.util.SplittableRandom;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 
 public class PercolationStats {
     private final static double CONFIDENCE_95 = 1.96;
-    private double[] results;
+    private final static int MIN_SEQUENTIAL_TRIAL_COUNT = 30;
+    private final static int DEFAULT_MAX_SEQUENTIAL_TRIAL_COUNT = 1000000;
+    // Running statistics of the results, updated with Welford's method
+    private int resultCount;
+    private double resultsRunningMean;
+    private double resultsSumOfSquaredDeviations;
     private double resultsSampleMean;
     private double resultsSampleStdDev;
     private double resultsConfidenceLo;
@@ -17,6 +24,42 @@ public class PercolationStats {
         computeAndSaveResultStats();
     }
 
+    /**
+     * Performs the trials in parallel on the common fork-join pool. Each trial draws from its own
+     * SplittableRandom split off the master seed, so the results depend only on the seed and not on
+     * how the trials are scheduled.
+     */
+
+    public PercolationStats(int n, int trials, long masterSeed) {
+        validateGridSize(n);
+        validateTrialCount(trials);
+        performTrialsInParallelAndSaveResults(n, trials, masterSeed);
+        computeAndSaveResultStats();
+    }
+
+    private PercolationStats() {
+    }
+
+    /**
+     * Performs trials one at a time until the width confidenceHi() - confidenceLo() of the 95%
+     * confidence interval is at most the given target, or maxTrials trials have been performed.
+     * Only running statistics are kept, so memory use does not grow with the number of trials. At
+     * least MIN_SEQUENTIAL_TRIAL_COUNT trials are performed, unless maxTrials is smaller, so that
+     * the interval is not trusted while the standard deviation estimate is still unreliable.
+     *
+     * @return The statistics, whose interval is wider than the target only if maxTrials ran out.
+     */
+
+    public static PercolationStats withConfidenceWidth(int n, double targetWidth, int maxTrials) {
+        PercolationStats stats = new PercolationStats();
+        stats.validateGridSize(n);
+        stats.validateTargetWidth(targetWidth);
+        stats.validateTrialCount(maxTrials);
+        stats.performTrialsUntilConfidenceWidth(n, targetWidth, maxTrials);
+        stats.computeAndSaveResultStats();
+        return stats;
+    }
+
     private void validateGridSize(int gridSize) {
         if (gridSize < 1)
             throw new IllegalArgumentException("Grid size must be at least 1.");
@@ -27,37 +70,123 @@ public class PercolationStats {
             throw new IllegalArgumentException("Trial count must be at least 1.");
     }
 
+    private void validateTargetWidth(double targetWidth) {
+        if (!(targetWidth > 0.0))
+            throw new IllegalArgumentException("Target width must be positive.");
+    }
+
     private void performTrialsAndSaveResults(int gridSize, int trialCount) {
-        results = new double[trialCount];
-        for (int i = 0; i < trialCount; i++) {
-            Percolation percolation = new Percolation(gridSize);
-            while (!percolation.percolates())
-                openARandomBlockedSite(percolation, gridSize);
-            results[i] = getOpenSiteFraction(percolation, gridSize);
-        }
+        for (int i = 0; i < trialCount; i++)
+            recordResult(performTrial(gridSize, StdRandom::uniform));
+    }
+
+    /**
+     * The results are recorded in trial order after all trials finish, so the floating-point
+     * rounding of the statistics is reproducible as well.
+     */
+
+    private void performTrialsInParallelAndSaveResults(int gridSize, int trialCount,
+            long masterSeed) {
+        SplittableRandom[] trialRandoms = splitRandomPerTrial(masterSeed, trialCount);
+        double[] results = new double[trialCount];
+        IntStream.range(0, trialCount).parallel()
+                .forEach(i -> results[i] = performTrial(gridSize, trialRandoms[i]::nextInt));
+        for (double result : results)
+            recordResult(result);
+    }
+
+    /**
+     * A NaN width never counts as narrow enough, so it runs to maxTrials instead of stopping early.
+     */
+
+    private void performTrialsUntilConfidenceWidth(int gridSize, double targetWidth,
+            int maxTrials) {
+        do
+            recordResult(performTrial(gridSize, StdRandom::uniform));
+        while (resultCount < maxTrials && (resultCount < MIN_SEQUENTIAL_TRIAL_COUNT
+                || !(2 * computeConfidenceHalfWidth() <= targetWidth)));
     }
 
-    private void openARandomBlockedSite(Percolation percolation, int gridSize) {
-        int row;
-        int col;
-        do {
-            row = StdRandom.uniform(1, gridSize + 1);
-            col = StdRandom.uniform(1, gridSize + 1);
-        } while (percolation.isOpen(row, col));
-        percolation.open(row, col);
+    /**
+     * Splits are taken sequentially so that trial i always receives the same generator.
+     */
+
+    private SplittableRandom[] splitRandomPerTrial(long masterSeed, int trialCount) {
+        SplittableRandom masterRandom = new SplittableRandom(masterSeed);
+        SplittableRandom[] trialRandoms = new SplittableRandom[trialCount];
+        for (int i = 0; i < trialCount; i++)
+            trialRandoms[i] = masterRandom.split();
+        return trialRandoms;
+    }
+
+    /**
+     * Opens sites in the order of a uniformly random permutation, which is generated lazily with
+     * Fisher-Yates, so every draw opens a previously blocked site.
+     *
+     * @param randomIntBelow - Returns a uniformly random int in [0, bound) for a given bound
+     * @return The fraction of open sites at the moment the grid first percolates.
+     */
+
+    private double performTrial(int gridSize, IntUnaryOperator randomIntBelow) {
+        Percolation percolation = new Percolation(gridSize);
+        int[] siteOrder = createIdentityPermutation(gridSize * gridSize);
+        for (int openedCount = 0; !percolation.percolates(); openedCount++)
+            percolation.openIndex(shuffleInNextSite(siteOrder, openedCount, randomIntBelow));
+        return getOpenSiteFraction(percolation, gridSize);
+    }
+
+    private int[] createIdentityPermutation(int length) {
+        int[] permutation = new int[length];
+        for (int i = 0; i < length; i++)
+            permutation[i] = i;
+        return permutation;
+    }
+
+    /**
+     * Performs one step of Fisher-Yates: swaps a random element of siteOrder[position..] into the
+     * given position and returns it.
+     */
+
+    private int shuffleInNextSite(int[] siteOrder, int position, IntUnaryOperator randomIntBelow) {
+        int randomPosition = position + randomIntBelow.applyAsInt(siteOrder.length - position);
+        int siteIndex = siteOrder[randomPosition];
+        siteOrder[randomPosition] = siteOrder[position];
+        siteOrder[position] = siteIndex;
+        return siteIndex;
     }
 
     private double getOpenSiteFraction(Percolation percolation, int gridSize) {
         return (double) percolation.numberOfOpenSites() / (double) (gridSize * gridSize);
     }
 
+    private void recordResult(double result) {
+        resultCount++;
+        double deviationFromOldMean = result - resultsRunningMean;
+        resultsRunningMean += deviationFromOldMean / resultCount;
+        resultsSumOfSquaredDeviations += deviationFromOldMean * (result - resultsRunningMean);
+    }
+
+    private double computeSampleStdDev() {
+        return Math.sqrt(resultsSumOfSquaredDeviations / (resultCount - 1));
+    }
+
+    private double computeConfidenceHalfWidth() {
+        return (CONFIDENCE_95 * computeSampleStdDev()) / Math.sqrt(resultCount);
+    }
+
     private void computeAndSaveResultStats() {
-        resultsSampleMean = StdStats.mean(results);
-        resultsSampleStdDev = StdStats.stddev(results);
-        resultsConfidenceLo = resultsSampleMean
-                - (CONFIDENCE_95 * resultsSampleStdDev) / Math.sqrt(results.length);
-        resultsConfidenceHi = resultsSampleMean
-                + (CONFIDENCE_95 * resultsSampleStdDev) / Math.sqrt(results.length);
+        resultsSampleMean = resultsRunningMean;
+        resultsSampleStdDev = computeSampleStdDev();
+        resultsConfidenceLo = resultsSampleMean - computeConfidenceHalfWidth();
+        resultsConfidenceHi = resultsSampleMean + computeConfidenceHalfWidth();
+    }
+
+    /**
+     * @return The number of trials that were performed.
+     */
+
+    public int trialCount() {
+        return resultCount;
     }
 
     public double mean() {
@@ -76,14 +205,29 @@ public class PercolationStats {
         return resultsConfidenceHi;
     }
 
+    /**
+     * Usage: PercolationStats n trials [masterSeed], or PercolationStats n -w width [maxTrials] to
+     * perform trials until the confidence interval is narrow enough.
+     */
+
     public static void main(String[] args) {
         int gridSize = Integer.parseInt(args[0]);
-        int trialCount = Integer.parseInt(args[1]);
-        PercolationStats stats = new PercolationStats(gridSize, trialCount);
+        PercolationStats stats;
+        if (args[1].equals("-w")) {
+            int maxTrials = DEFAULT_MAX_SEQUENTIAL_TRIAL_COUNT;
+            if (args.length > 3)
+                maxTrials = Integer.parseInt(args[3]);
+            stats = withConfidenceWidth(gridSize, Double.parseDouble(args[2]), maxTrials);
+        } else if (args.length > 2)
+            stats = new PercolationStats(gridSize, Integer.parseInt(args[1]),
+                    Long.parseLong(args[2]));
+        else
+            stats = new PercolationStats(gridSize, Integer.parseInt(args[1]));
         printStats(stats);
     }
 
     private static void printStats(PercolationStats stats) {
+        StdOut.println("trials = " + stats.trialCount());
         StdOut.println("mean = " + stats.mean());
         StdOut.println("stddev = " + stats.stddev());
         StdOut.println("95% confidence interval = [" + stats.confidenceLo() + ", "
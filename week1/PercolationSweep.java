@@ -0,0 +1,143 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+/**
+ * Newman-Ziff sweep: each trial opens every site of an n-by-n grid in random order and records,
+ * for every number k of open sites, whether the grid percolates, the largest cluster size and the
+ * cluster count. Averaging these over the trials gives the statistics at fixed k, and convolving
+ * them with the binomial distribution gives them at any probability p of a site being open.
+ */
+
+public class PercolationSweep {
+    private static final double NEGLIGIBLE_BINOMIAL_WEIGHT = 1e-16;
+    private final int siteCount;
+    private final int trialCount;
+    // Each array is indexed by the number of open sites and holds the average over all trials
+    private double[] percolationProbabilities;
+    private double[] meanLargestClusterSizes;
+    private double[] meanClusterCounts;
+
+    public PercolationSweep(int n, int trials) {
+        validateGridSize(n);
+        validateTrialCount(trials);
+        siteCount = n * n;
+        trialCount = trials;
+        performSweepsAndSaveSums(n);
+        convertSumsToMeans();
+    }
+
+    private void validateGridSize(int gridSize) {
+        if (gridSize < 1)
+            throw new IllegalArgumentException("Grid size must be at least 1.");
+    }
+
+    private void validateTrialCount(int trialCount) {
+        if (trialCount < 1)
+            throw new IllegalArgumentException("Trial count must be at least 1.");
+    }
+
+    private void performSweepsAndSaveSums(int gridSize) {
+        percolationProbabilities = new double[siteCount + 1];
+        meanLargestClusterSizes = new double[siteCount + 1];
+        meanClusterCounts = new double[siteCount + 1];
+        for (int i = 0; i < trialCount; i++)
+            performSweep(gridSize);
+    }
+
+    private void performSweep(int gridSize) {
+        Percolation percolation = new Percolation(gridSize);
+        int[] siteOrder = StdRandom.permutation(siteCount);
+        for (int openedCount = 1; openedCount <= siteCount; openedCount++) {
+            percolation.openIndex(siteOrder[openedCount - 1]);
+            if (percolation.percolates())
+                percolationProbabilities[openedCount]++;
+            meanLargestClusterSizes[openedCount] += percolation.largestClusterSize();
+            meanClusterCounts[openedCount] += percolation.clusterCount();
+        }
+    }
+
+    private void convertSumsToMeans() {
+        for (int k = 0; k <= siteCount; k++) {
+            percolationProbabilities[k] /= trialCount;
+            meanLargestClusterSizes[k] /= trialCount;
+            meanClusterCounts[k] /= trialCount;
+        }
+    }
+
+    /**
+     * @return The probability that the grid percolates when each site is open with probability p.
+     */
+
+    public double percolationProbability(double p) {
+        return averageOverBinomialOpenSiteCount(percolationProbabilities, p);
+    }
+
+    /**
+     * @return The expected size of the largest cluster when each site is open with probability p.
+     */
+
+    public double meanLargestClusterSize(double p) {
+        return averageOverBinomialOpenSiteCount(meanLargestClusterSizes, p);
+    }
+
+    /**
+     * @return The expected number of clusters when each site is open with probability p.
+     */
+
+    public double meanClusterCount(double p) {
+        return averageOverBinomialOpenSiteCount(meanClusterCounts, p);
+    }
+
+    /**
+     * Computes the sum over k of B(siteCount, k, p) * valuesByOpenSiteCount[k]. The binomial
+     * weights are built relative to the mode with their ratio recurrence, which avoids overflowing
+     * factorials, and the summation stops once the weights become negligible.
+     */
+
+    private double averageOverBinomialOpenSiteCount(double[] valuesByOpenSiteCount, double p) {
+        validateProbability(p);
+        if (p == 0.0)
+            return valuesByOpenSiteCount[0];
+        if (p == 1.0)
+            return valuesByOpenSiteCount[siteCount];
+        int mode = Math.min(siteCount, (int) ((siteCount + 1) * p));
+        double oddsRatio = p / (1.0 - p);
+        double weightedSum = valuesByOpenSiteCount[mode];
+        double weightSum = 1.0;
+        double weight = 1.0;
+        for (int k = mode; k < siteCount && weight > NEGLIGIBLE_BINOMIAL_WEIGHT; k++) {
+            weight *= oddsRatio * (siteCount - k) / (k + 1);
+            weightedSum += weight * valuesByOpenSiteCount[k + 1];
+            weightSum += weight;
+        }
+        weight = 1.0;
+        for (int k = mode; k > 0 && weight > NEGLIGIBLE_BINOMIAL_WEIGHT; k--) {
+            weight *= (double) k / (siteCount - k + 1) / oddsRatio;
+            weightedSum += weight * valuesByOpenSiteCount[k - 1];
+            weightSum += weight;
+        }
+        return weightedSum / weightSum;
+    }
+
+    private void validateProbability(double p) {
+        if (!(p >= 0.0 && p <= 1.0))
+            throw new IllegalArgumentException("Probability must be in the range [0, 1].");
+    }
+
+    public static void main(String[] args) {
+        int gridSize = Integer.parseInt(args[0]);
+        int trialCount = Integer.parseInt(args[1]);
+        int pointCount = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        PercolationSweep sweep = new PercolationSweep(gridSize, trialCount);
+        printCurves(sweep, pointCount);
+    }
+
+    private static void printCurves(PercolationSweep sweep, int pointCount) {
+        StdOut.println("p\tpercolation probability\tlargest cluster size\tcluster count");
+        for (int i = 0; i <= pointCount; i++) {
+            double p = (double) i / pointCount;
+            StdOut.println(p + "\t" + sweep.percolationProbability(p) + "\t"
+                    + sweep.meanLargestClusterSize(p) + "\t" + sweep.meanClusterCount(p));
+        }
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Thread-safe double-ended queue with a fixed capacity, for passing items between the stages of a
+ * pipeline. Producers block while it is full and consumers while it is empty, so a fast producer
+ * is slowed to the pace of its consumers instead of filling memory.
+ *
+ * Items are stored in a ring buffer allocated once by the constructor. All operations hold one
+ * ReentrantLock and wait on its Conditions rather than on the object's monitor, so a blocked
+ * thread is parked without pinning its carrier thread when run on a virtual thread.
+ */
+
+public class BoundedBlockingDeque<Item> {
+    private final Item[] itemsArray;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int firstItemIndex; // Index in itemsArray of the front item
+    private int itemCount;
+
+    /**
+     * Constructs an empty deque that holds at most capacity items.
+     */
+
+    public BoundedBlockingDeque(int capacity) {
+        validateCapacity(capacity);
+        itemsArray = (Item[]) new Object[capacity];
+    }
+
+    private void validateCapacity(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+    }
+
+    /**
+     * Adds the item to the front, waiting for space if the deque is full.
+     */
+
+    public void putFirst(Item item) throws InterruptedException {
+        validateItemToBeAdded(item);
+        lock.lockInterruptibly();
+        try {
+            while (isFull())
+                notFull.await();
+            insertFirst(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the back, waiting for space if the deque is full.
+     */
+
+    public void putLast(Item item) throws InterruptedException {
+        validateItemToBeAdded(item);
+        lock.lockInterruptibly();
+        try {
+            while (isFull())
+                notFull.await();
+            insertLast(item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the front, waiting up to the timeout for space if the deque is full.
+     *
+     * @return false if the deque was still full when the timeout elapsed.
+     */
+
+    public boolean offerFirst(Item item, long timeout, TimeUnit unit) throws InterruptedException {
+        validateItemToBeAdded(item);
+        long nanosLeft = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (isFull()) {
+                if (nanosLeft <= 0)
+                    return false;
+                nanosLeft = notFull.awaitNanos(nanosLeft);
+            }
+            insertFirst(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the item to the back, waiting up to the timeout for space if the deque is full.
+     *
+     * @return false if the deque was still full when the timeout elapsed.
+     */
+
+    public boolean offerLast(Item item, long timeout, TimeUnit unit) throws InterruptedException {
+        validateItemToBeAdded(item);
+        long nanosLeft = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (isFull()) {
+                if (nanosLeft <= 0)
+                    return false;
+                nanosLeft = notFull.awaitNanos(nanosLeft);
+            }
+            insertLast(item);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void validateItemToBeAdded(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot add null item.");
+    }
+
+    private void insertFirst(Item item) {
+        firstItemIndex = wrapIndex(firstItemIndex - 1);
+        itemsArray[firstItemIndex] = item;
+        itemCount++;
+        notEmpty.signal();
+    }
+
+    private void insertLast(Item item) {
+        itemsArray[arrayIndexOf(itemCount)] = item;
+        itemCount++;
+        notEmpty.signal();
+    }
+
+    /**
+     * Removes the front item and returns it, waiting for one if the deque is empty.
+     */
+
+    public Item takeFirst() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (itemCount == 0)
+                notEmpty.await();
+            return extractFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the back item and returns it, waiting for one if the deque is empty.
+     */
+
+    public Item takeLast() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (itemCount == 0)
+                notEmpty.await();
+            return extractLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the front item and returns it, waiting up to the timeout for one if the deque is
+     * empty.
+     *
+     * @return The item, or null if the deque was still empty when the timeout elapsed.
+     */
+
+    public Item pollFirst(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanosLeft = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (itemCount == 0) {
+                if (nanosLeft <= 0)
+                    return null;
+                nanosLeft = notEmpty.awaitNanos(nanosLeft);
+            }
+            return extractFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the back item and returns it, waiting up to the timeout for one if the deque is
+     * empty.
+     *
+     * @return The item, or null if the deque was still empty when the timeout elapsed.
+     */
+
+    public Item pollLast(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanosLeft = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (itemCount == 0) {
+                if (nanosLeft <= 0)
+                    return null;
+                nanosLeft = notEmpty.awaitNanos(nanosLeft);
+            }
+            return extractLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Item extractFirst() {
+        Item item = itemsArray[firstItemIndex];
+        itemsArray[firstItemIndex] = null;
+        firstItemIndex = wrapIndex(firstItemIndex + 1);
+        itemCount--;
+        notFull.signal();
+        return item;
+    }
+
+    private Item extractLast() {
+        int lastItemIndex = arrayIndexOf(itemCount - 1);
+        Item item = itemsArray[lastItemIndex];
+        itemsArray[lastItemIndex] = null;
+        itemCount--;
+        notFull.signal();
+        return item;
+    }
+
+    /**
+     * Removes up to maxItems items from the front, in order, and adds them to the collection,
+     * without waiting. Producers blocked on a full deque are all woken, since several may now fit,
+     * even if adding to the collection throws partway through.
+     *
+     * @return The number of items moved.
+     */
+
+    public int drainTo(Collection<? super Item> collection, int maxItems) {
+        validateDrainArguments(collection, maxItems);
+        lock.lock();
+        int drainedCount = 0;
+        try {
+            int toDrainCount = Math.min(maxItems, itemCount);
+            while (drainedCount < toDrainCount) {
+                collection.add(itemsArray[firstItemIndex]);
+                itemsArray[firstItemIndex] = null;
+                firstItemIndex = wrapIndex(firstItemIndex + 1);
+                itemCount--;
+                drainedCount++;
+            }
+            return drainedCount;
+        } finally {
+            if (drainedCount > 0)
+                notFull.signalAll();
+            lock.unlock();
+        }
+    }
+
+    private void validateDrainArguments(Collection<? super Item> collection, int maxItems) {
+        if (collection == null)
+            throw new IllegalArgumentException("Collection cannot be null.");
+        if (maxItems < 0)
+            throw new IllegalArgumentException("Maximum number of items cannot be negative.");
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return itemCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return The number of items that can be added without waiting.
+     */
+
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return itemsArray.length - itemCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFull() {
+        return itemCount == itemsArray.length;
+    }
+
+    /**
+     * @return The index in itemsArray of the item at the given position from the front.
+     */
+
+    private int arrayIndexOf(int position) {
+        return wrapIndex(firstItemIndex + position);
+    }
+
+    /**
+     * The capacity need not be a power of two, so wrapping around adds or subtracts it. Indices are
+     * never more than one capacity outside the array.
+     */
+
+    private int wrapIndex(int index) {
+        if (index < 0)
+            return index + itemsArray.length;
+        if (index >= itemsArray.length)
+            return index - itemsArray.length;
+        return index;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        BoundedBlockingDeque<Integer> deque = new BoundedBlockingDeque<>(4);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++)
+                    deque.putLast(i);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        for (int i = 0; i < 20; i++)
+            StdOut.println("op. " + deque.takeFirst());
+        producer.join();
+        StdOut.println("timed out = " + (deque.pollFirst(10, TimeUnit.MILLISECONDS) == null));
+    }
+}
@@ -0,0 +1,32 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws uniformly random indices with Lemire's nearly divisionless method, shared by the
+ * randomized queues.
+ */
+
+final class BoundedRandom {
+    private BoundedRandom() {
+    }
+
+    /**
+     * Maps a random 32-bit value to [0, bound) by taking the high half of its product with the
+     * bound. Only when the low half lands in the small biased region is a remainder computed and
+     * the value possibly redrawn, so most calls cost one multiplication and no division.
+     *
+     * @return A uniformly random int in [0, bound).
+     */
+
+    static int nextIndex(RandomGenerator random, int bound) {
+        long product = Integer.toUnsignedLong(random.nextInt()) * bound;
+        int lowBits = (int) product;
+        if (Integer.compareUnsigned(lowBits, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned(lowBits, threshold) < 0) {
+                product = Integer.toUnsignedLong(random.nextInt()) * bound;
+                lowBits = (int) product;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+}
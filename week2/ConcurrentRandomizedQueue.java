@@ -0,0 +1,174 @@
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Thread-safe randomized queue for many producers and consumers. Items are striped across shards,
+ * each a RandomizedQueue guarded by its own lock. A thread enqueues into the shard its identity
+ * hashes to, so producers rarely contend, and moves on to the next shard if that one is busy.
+ * dequeue() and sample() start at a random shard and steal from the following ones until they find
+ * an item.
+ *
+ * Within a shard the pick is uniform, but shards are chosen with equal probability whatever their
+ * sizes, so the pick over the whole queue is only approximately uniform: exact when the shards
+ * hold equally many items, and biased towards items in smaller shards otherwise.
+ */
+
+public class ConcurrentRandomizedQueue<Item> {
+    private final RandomizedQueue<Item>[] shards;
+    private final ReentrantLock[] shardLocks;
+    private final AtomicInteger itemCount = new AtomicInteger();
+
+    /**
+     * Constructs an empty queue with two shards per available processor.
+     */
+
+    public ConcurrentRandomizedQueue() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an empty queue with the given number of shards.
+     */
+
+    public ConcurrentRandomizedQueue(int shardCount) {
+        validateShardCount(shardCount);
+        shards = (RandomizedQueue<Item>[]) new RandomizedQueue[shardCount];
+        shardLocks = new ReentrantLock[shardCount];
+        SplittableRandom random = new SplittableRandom();
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new RandomizedQueue<>(random.split());
+            shardLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private void validateShardCount(int shardCount) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("Shard count must be at least 1.");
+    }
+
+    /**
+     * Adds the item to the shard of the calling thread, or to the first free shard after it if
+     * another thread holds that one.
+     */
+
+    public void enqueue(Item item) {
+        validateItemToBeEnqueued(item);
+        int localShard = localShardIndex();
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (localShard + i) % shards.length;
+            if (shardLocks[shard].tryLock()) {
+                enqueueIntoLockedShard(shard, item);
+                return;
+            }
+        }
+        shardLocks[localShard].lock();
+        enqueueIntoLockedShard(localShard, item);
+    }
+
+    private void validateItemToBeEnqueued(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("enqueue() argument cannot be null.");
+    }
+
+    private void enqueueIntoLockedShard(int shard, Item item) {
+        try {
+            shards[shard].enqueue(item);
+            itemCount.incrementAndGet();
+        } finally {
+            shardLocks[shard].unlock();
+        }
+    }
+
+    /**
+     * Spreads thread ids with the MurmurHash3 finalizer, since they are usually consecutive.
+     */
+
+    private int localShardIndex() {
+        long id = Thread.currentThread().getId();
+        id = (id ^ (id >>> 33)) * 0xff51afd7ed558ccdL;
+        id = (id ^ (id >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return (int) Math.floorMod(id, (long) shards.length);
+    }
+
+    /**
+     * Removes and returns a random item.
+     *
+     * @throws NoSuchElementException if every shard was empty when it was visited.
+     */
+
+    public Item dequeue() {
+        int firstShard = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (firstShard + i) % shards.length;
+            shardLocks[shard].lock();
+            try {
+                if (!shards[shard].isEmpty()) {
+                    Item item = shards[shard].dequeue();
+                    itemCount.decrementAndGet();
+                    return item;
+                }
+            } finally {
+                shardLocks[shard].unlock();
+            }
+        }
+        throw new NoSuchElementException("The randomized queue is empty.");
+    }
+
+    /**
+     * Returns a random item without removing it.
+     *
+     * @throws NoSuchElementException if every shard was empty when it was visited.
+     */
+
+    public Item sample() {
+        int firstShard = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            int shard = (firstShard + i) % shards.length;
+            shardLocks[shard].lock();
+            try {
+                if (!shards[shard].isEmpty())
+                    return shards[shard].sample();
+            } finally {
+                shardLocks[shard].unlock();
+            }
+        }
+        throw new NoSuchElementException("The randomized queue is empty.");
+    }
+
+    /**
+     * @return The number of items, exact when no operation is in progress.
+     */
+
+    public int size() {
+        return itemCount.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentRandomizedQueue<Integer> queue = new ConcurrentRandomizedQueue<>(4);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            int firstItem = 100 * p;
+            producers[p] = new Thread(() -> {
+                for (int i = firstItem; i < firstItem + 100; i++)
+                    queue.enqueue(i);
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers)
+            producer.join();
+        StdOut.println("size = " + queue.size());
+        StdOut.println("sample = " + queue.sample());
+        while (!queue.isEmpty())
+            StdOut.print(queue.dequeue() + " ");
+        StdOut.println();
+    }
+}
@@ -1,31 +1,30 @@
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import edu.princeton.cs.algs4.StdOut;
 
 /**
- * Doubly linked list implementation of double-ended queue (deque) data structure.
+ * Circular resizing array implementation of double-ended queue (deque) data structure. Items are
+ * stored contiguously (modulo wrap-around) in a single array whose capacity is a power of two, so
+ * adding an item allocates nothing except when the array doubles, and iteration walks memory in
+ * order.
  */
 
 public class Deque<Item> implements Iterable<Item> {
+    private static final int MIN_CAPACITY = 8;
+    private Item[] itemsArray;
+    private int firstItemIndex; // Index in itemsArray of the front item
     private int itemCount;
-    private Node firstNode;
-    private Node lastNode;
-
-    private class Node {
-        public Item item;
-        public Node next;
-        public Node prev;
-
-        public Node(Item item) {
-            this.item = item;
-        }
-    }
 
     /**
      * Constructs an empty deque.
      */
 
     public Deque() {
+        itemsArray = (Item[]) new Object[MIN_CAPACITY];
     }
 
     /**
@@ -34,32 +33,22 @@ public class Deque<Item> implements Iterable<Item> {
 
     public void addFirst(Item item) {
         validateItemToBeAdded(item);
-        Node oldFirstNode = firstNode;
-        firstNode = new Node(item);
-        if (isEmpty())
-            lastNode = firstNode;
-        else
-            linkNewFirstNodeToOld(oldFirstNode);
+        if (isItemCountAtMaxThreshold())
+            resize(2 * itemsArray.length);
+        firstItemIndex = wrapIndex(firstItemIndex - 1);
+        itemsArray[firstItemIndex] = item;
         itemCount++;
     }
 
-    private void linkNewFirstNodeToOld(Node oldFirstNode) {
-        firstNode.next = oldFirstNode;
-        oldFirstNode.prev = firstNode;
-    }
-
     /**
      * Adds the specified item to the back of the queue.
      */
 
     public void addLast(Item item) {
         validateItemToBeAdded(item);
-        Node oldLastNode = lastNode;
-        lastNode = new Node(item);
-        if (isEmpty())
-            firstNode = lastNode;
-        else
-            linkNewLastNodeToOld(oldLastNode);
+        if (isItemCountAtMaxThreshold())
+            resize(2 * itemsArray.length);
+        itemsArray[arrayIndexOf(itemCount)] = item;
         itemCount++;
     }
 
@@ -68,43 +57,33 @@ public class Deque<Item> implements Iterable<Item> {
             throw new IllegalArgumentException("Cannot add null item.");
     }
 
-    private void linkNewLastNodeToOld(Node oldLastNode) {
-        oldLastNode.next = lastNode;
-        lastNode.prev = oldLastNode;
-    }
-
     /**
      * Removes the item from the front and returns it.
      */
 
     public Item removeFirst() {
         validateRemoveOperation();
-        Item item = firstNode.item;
-        if (size() == 1)
-            nullifyNodePointers();
-        else
-            removeFirstNode();
+        Item item = itemsArray[firstItemIndex];
+        itemsArray[firstItemIndex] = null;
+        firstItemIndex = wrapIndex(firstItemIndex + 1);
         itemCount--;
+        if (isItemCountAtMinThreshold())
+            resize(itemsArray.length / 2);
         return item;
     }
 
-    private void removeFirstNode() {
-        firstNode = firstNode.next;
-        firstNode.prev = null;
-    }
-
     /**
      * Removes the item from the back and returns it.
      */
 
     public Item removeLast() {
         validateRemoveOperation();
-        Item item = lastNode.item;
-        if (size() == 1)
-            nullifyNodePointers();
-        else
-            removeLastNode();
+        int lastItemIndex = arrayIndexOf(itemCount - 1);
+        Item item = itemsArray[lastItemIndex];
+        itemsArray[lastItemIndex] = null;
         itemCount--;
+        if (isItemCountAtMinThreshold())
+            resize(itemsArray.length / 2);
         return item;
     }
 
@@ -121,14 +100,40 @@ public class Deque<Item> implements Iterable<Item> {
         return itemCount == 0;
     }
 
-    private void nullifyNodePointers() {
-        firstNode = null;
-        lastNode = null;
+    private boolean isItemCountAtMaxThreshold() {
+        return itemCount == itemsArray.length;
     }
 
-    private void removeLastNode() {
-        lastNode = lastNode.prev;
-        lastNode.next = null;
+    private boolean isItemCountAtMinThreshold() {
+        return itemsArray.length > MIN_CAPACITY && itemCount == itemsArray.length / 4;
+    }
+
+    /**
+     * Copies the items in order to the start of a new array.
+     */
+
+    private void resize(int newCapacity) {
+        Item[] temp = (Item[]) new Object[newCapacity];
+        for (int i = 0; i < itemCount; i++)
+            temp[i] = itemsArray[arrayIndexOf(i)];
+        itemsArray = temp;
+        firstItemIndex = 0;
+    }
+
+    /**
+     * @return The index in itemsArray of the item at the given position from the front.
+     */
+
+    private int arrayIndexOf(int position) {
+        return wrapIndex(firstItemIndex + position);
+    }
+
+    /**
+     * The capacity is a power of two, so wrapping around is a bit mask.
+     */
+
+    private int wrapIndex(int index) {
+        return index & (itemsArray.length - 1);
     }
 
     /**
@@ -140,18 +145,16 @@ public class Deque<Item> implements Iterable<Item> {
     }
 
     private class DequeIterator implements Iterator<Item> {
-        private Node current = firstNode;
+        private int currentPosition;
 
         public boolean hasNext() {
-            return current != null;
+            return currentPosition < itemCount;
         }
 
         public Item next() {
             if (!hasNext())
                 throw new NoSuchElementException("No more items to return.");
-            Item item = current.item;
-            current = current.next;
-            return item;
+            return itemsArray[arrayIndexOf(currentPosition++)];
         }
 
         public void remove() {
@@ -160,6 +163,62 @@ public class Deque<Item> implements Iterable<Item> {
         }
     }
 
+    /**
+     * @return A spliterator over items in order from front to back, which splits the positions
+     *         between the front and the back into halves, wherever they lie in the array.
+     */
+
+    public Spliterator<Item> spliterator() {
+        return new DequeSpliterator(0, itemCount);
+    }
+
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Item> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class DequeSpliterator implements Spliterator<Item> {
+        private int currentPosition;
+        private final int fence; // Position one past the last item to visit
+
+        DequeSpliterator(int origin, int fence) {
+            currentPosition = origin;
+            this.fence = fence;
+        }
+
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (currentPosition >= fence)
+                return false;
+            action.accept(itemsArray[arrayIndexOf(currentPosition++)]);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Item> action) {
+            while (currentPosition < fence)
+                action.accept(itemsArray[arrayIndexOf(currentPosition++)]);
+        }
+
+        public Spliterator<Item> trySplit() {
+            int middlePosition = (currentPosition + fence) >>> 1;
+            if (middlePosition == currentPosition)
+                return null;
+            Spliterator<Item> prefix = new DequeSpliterator(currentPosition, middlePosition);
+            currentPosition = middlePosition;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return fence - currentPosition;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     public static void main(String[] args) {
         Deque<Integer> deque = new Deque<>();
         deque.addLast(3);
@@ -0,0 +1,159 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Deque specialized for int items. It has the same circular resizing array layout as Deque but
+ * stores the items in an int[], so nothing is boxed on the way in or out.
+ */
+
+public class IntDeque {
+    private static final int MIN_CAPACITY = 8;
+    private int[] itemsArray;
+    private int firstItemIndex; // Index in itemsArray of the front item
+    private int itemCount;
+
+    /**
+     * Constructs an empty deque.
+     */
+
+    public IntDeque() {
+        itemsArray = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * Adds the specified item to the front of the queue.
+     */
+
+    public void addFirst(int item) {
+        if (isItemCountAtMaxThreshold())
+            resize(2 * itemsArray.length);
+        firstItemIndex = wrapIndex(firstItemIndex - 1);
+        itemsArray[firstItemIndex] = item;
+        itemCount++;
+    }
+
+    /**
+     * Adds the specified item to the back of the queue.
+     */
+
+    public void addLast(int item) {
+        if (isItemCountAtMaxThreshold())
+            resize(2 * itemsArray.length);
+        itemsArray[arrayIndexOf(itemCount)] = item;
+        itemCount++;
+    }
+
+    /**
+     * Removes the item from the front and returns it.
+     */
+
+    public int removeFirst() {
+        validateRemoveOperation();
+        int item = itemsArray[firstItemIndex];
+        firstItemIndex = wrapIndex(firstItemIndex + 1);
+        itemCount--;
+        if (isItemCountAtMinThreshold())
+            resize(itemsArray.length / 2);
+        return item;
+    }
+
+    /**
+     * Removes the item from the back and returns it.
+     */
+
+    public int removeLast() {
+        validateRemoveOperation();
+        int item = itemsArray[arrayIndexOf(itemCount - 1)];
+        itemCount--;
+        if (isItemCountAtMinThreshold())
+            resize(itemsArray.length / 2);
+        return item;
+    }
+
+    private void validateRemoveOperation() {
+        if (isEmpty())
+            throw new NoSuchElementException("The deque is already empty.");
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    private boolean isItemCountAtMaxThreshold() {
+        return itemCount == itemsArray.length;
+    }
+
+    private boolean isItemCountAtMinThreshold() {
+        return itemsArray.length > MIN_CAPACITY && itemCount == itemsArray.length / 4;
+    }
+
+    private void resize(int newCapacity) {
+        int[] temp = new int[newCapacity];
+        for (int i = 0; i < itemCount; i++)
+            temp[i] = itemsArray[arrayIndexOf(i)];
+        itemsArray = temp;
+        firstItemIndex = 0;
+    }
+
+    private int arrayIndexOf(int position) {
+        return wrapIndex(firstItemIndex + position);
+    }
+
+    private int wrapIndex(int index) {
+        return index & (itemsArray.length - 1);
+    }
+
+    /**
+     * Performs the action for each item in order from front to back.
+     */
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < itemCount; i++)
+            action.accept(itemsArray[arrayIndexOf(i)]);
+    }
+
+    /**
+     * @return An iterator over items in order from front to back.
+     */
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntDequeIterator();
+    }
+
+    private class IntDequeIterator implements PrimitiveIterator.OfInt {
+        private int currentPosition;
+
+        public boolean hasNext() {
+            return currentPosition < itemCount;
+        }
+
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException("No more items to return.");
+            return itemsArray[arrayIndexOf(currentPosition++)];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "Remove operation in iterator is forbidden to the client.");
+        }
+    }
+
+    public static void main(String[] args) {
+        IntDeque deque = new IntDeque();
+        deque.addLast(3);
+        deque.addLast(4);
+        deque.addFirst(2);
+        deque.addFirst(1);
+        deque.addLast(5);
+        deque.removeFirst();
+        deque.removeLast();
+        deque.forEach(i -> StdOut.println("op. " + i));
+    }
+}
@@ -0,0 +1,237 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.random.RandomGenerator;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * RandomizedQueue specialized for int items. It has the same resizing array layout as
+ * RandomizedQueue but stores the items in an int[], so nothing is boxed on the way in or out.
+ */
+
+public class IntRandomizedQueue {
+    private int[] itemsArray;
+    private int itemCount;
+    private final RandomGenerator random;
+
+    /**
+     * Constructs an empty randomized queue with its own randomly seeded SplittableRandom.
+     */
+
+    public IntRandomizedQueue() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs an empty randomized queue that draws from the given generator, e.g. a seeded
+     * SplittableRandom for reproducible runs or one from RandomGeneratorFactory. The queue does not
+     * synchronize on the generator, so queues used from different threads need their own.
+     */
+
+    public IntRandomizedQueue(RandomGenerator random) {
+        validateRandom(random);
+        this.random = random;
+        itemsArray = new int[1];
+    }
+
+    private void validateRandom(RandomGenerator random) {
+        if (random == null)
+            throw new IllegalArgumentException("Random generator cannot be null.");
+    }
+
+    /**
+     * Adds the item to the queue.
+     */
+
+    public void enqueue(int item) {
+        if (isItemCountAtMaxThreshold())
+            resize(2 * itemCount);
+        itemsArray[itemCount] = item;
+        itemCount++;
+        swapLastItemWithARandomItem();
+    }
+
+    /**
+     * Adds all the items to the queue, resizing at most once.
+     */
+
+    public void enqueueAll(int[] items) {
+        validateItemsToBeEnqueued(items);
+        if (itemCount + items.length > itemsArray.length)
+            resize(Math.max(2 * itemsArray.length, itemCount + items.length));
+        for (int item : items) {
+            itemsArray[itemCount] = item;
+            itemCount++;
+            swapLastItemWithARandomItem();
+        }
+    }
+
+    private void validateItemsToBeEnqueued(int[] items) {
+        if (items == null)
+            throw new IllegalArgumentException("enqueueAll() argument cannot be null.");
+    }
+
+    private void swapLastItemWithARandomItem() {
+        swap(itemCount - 1, getARandomItemIndex());
+    }
+
+    private void swap(int i, int j) {
+        int temp = itemsArray[i];
+        itemsArray[i] = itemsArray[j];
+        itemsArray[j] = temp;
+    }
+
+    /**
+     * Removes and returns a random item from the queue.
+     */
+
+    public int dequeue() {
+        validateDequeueOperation();
+        int item = itemsArray[itemCount - 1];
+        itemCount--;
+        if (isItemCountAtMinThreshold())
+            resize(itemsArray.length / 2);
+        return item;
+    }
+
+    /**
+     * Removes k random items from the queue, resizing at most once.
+     */
+
+    public int[] dequeue(int k) {
+        validateBatchSize(k);
+        // The items are kept in uniformly random order, so the last k items are a random k-subset.
+        int[] batch = Arrays.copyOfRange(itemsArray, itemCount - k, itemCount);
+        itemCount -= k;
+        shrinkIfSparse();
+        return batch;
+    }
+
+    private void validateBatchSize(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Batch size cannot be negative.");
+        if (k > itemCount)
+            throw new NoSuchElementException("Not enough items in the randomized queue.");
+    }
+
+    private void shrinkIfSparse() {
+        int newSize = itemsArray.length;
+        while (itemCount > 0 && itemCount <= newSize / 4)
+            newSize /= 2;
+        if (newSize != itemsArray.length)
+            resize(newSize);
+    }
+
+    private void validateDequeueOperation() {
+        if (isEmpty())
+            throw new NoSuchElementException("The randomized queue is already empty.");
+    }
+
+    private boolean isItemCountAtMaxThreshold() {
+        return itemCount == itemsArray.length;
+    }
+
+    private boolean isItemCountAtMinThreshold() {
+        return itemCount > 0 && itemCount == itemsArray.length / 4;
+    }
+
+    private void resize(int newSize) {
+        int[] temp = new int[newSize];
+        for (int i = 0; i < itemCount; i++)
+            temp[i] = itemsArray[i];
+        itemsArray = temp;
+    }
+
+    /**
+     * @return A random item in the queue.
+     */
+
+    public int sample() {
+        validateSampleOperation();
+        return itemsArray[getARandomItemIndex()];
+    }
+
+    /**
+     * @return k distinct random items of the queue, drawn without replacement by a partial
+     *         Fisher-Yates shuffle over the item indices. The queue is left unchanged.
+     */
+
+    public int[] sampleDistinct(int k) {
+        validateBatchSize(k);
+        LazyShuffle itemIndices = new LazyShuffle(itemCount, random);
+        int[] batch = new int[k];
+        for (int i = 0; i < k; i++)
+            batch[i] = itemsArray[itemIndices.next()];
+        return batch;
+    }
+
+    private void validateSampleOperation() {
+        if (isEmpty())
+            throw new NoSuchElementException("The randomized queue is empty.");
+    }
+
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    private int getARandomItemIndex() {
+        return BoundedRandom.nextIndex(random, itemCount);
+    }
+
+    /**
+     * Performs the action for each item, in random order.
+     */
+
+    public void forEach(IntConsumer action) {
+        PrimitiveIterator.OfInt iterator = iterator();
+        while (iterator.hasNext())
+            action.accept(iterator.nextInt());
+    }
+
+    /**
+     * @return An independent iterator over items in random order. The order is shuffled lazily, so
+     *         creating the iterator is O(1) and each step is expected O(1).
+     */
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntRandomizedQueueIterator();
+    }
+
+    private class IntRandomizedQueueIterator implements PrimitiveIterator.OfInt {
+        private final LazyShuffle order = new LazyShuffle(itemCount, random);
+
+        public boolean hasNext() {
+            return order.hasNext();
+        }
+
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException("No more items to return.");
+            return itemsArray[order.next()];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "Remove operation in iterator is forbidden to the client.");
+        }
+    }
+
+    public static void main(String[] args) {
+        IntRandomizedQueue q = new IntRandomizedQueue();
+        q.enqueue(1);
+        q.enqueue(2);
+        q.enqueue(3);
+        q.enqueue(4);
+        q.enqueue(5);
+        q.enqueue(5);
+        q.enqueue(6);
+        q.dequeue();
+        q.forEach(n -> StdOut.println("n == " + n));
+    }
+}
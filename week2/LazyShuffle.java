@@ -0,0 +1,167 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.random.RandomGenerator;
+
+/**
+ * Uniformly random permutation of [0, length) that is generated one element at a time by
+ * Fisher-Yates. Instead of an array holding the whole permutation, only the positions that earlier
+ * swaps have displaced are kept, in a small open-addressing hash map; every other position still
+ * holds its own index. Creating a shuffle is therefore O(1) and each next() is expected O(1).
+ *
+ * A position is dropped from the map once it has been drawn, so the map only holds displaced
+ * positions that are still undrawn. When those grow past a 32nd of the length, as they do on a
+ * full walk, the map is replaced by a dense array of every position, keeping memory at about four
+ * bytes per element instead of the map's larger footprint. The rest of that array is shuffled in
+ * one pass right away, since the array already costs O(length), and a tight eager pass is much
+ * faster than interleaving its random accesses with the caller's.
+ */
+
+final class LazyShuffle {
+    private static final int EMPTY = -1;
+    private static final int INITIAL_MAP_CAPACITY = 16;
+    private static final int DENSE_THRESHOLD_DIVISOR = 32; // Go dense above length / 32 entries
+    private final int length;
+    private final RandomGenerator random;
+    private int drawnCount;
+    // Displaced positions and their current elements; allocated on the first swap
+    private int[] displacedPositions;
+    private int[] displacedElements;
+    private int displacedCount;
+    private int[] elements; // Shuffled element at every position once dense; null before
+
+    LazyShuffle(int length, RandomGenerator random) {
+        this.length = length;
+        this.random = random;
+    }
+
+    boolean hasNext() {
+        return drawnCount < length;
+    }
+
+    /**
+     * Swaps the element at a random position of the undrawn range [drawnCount, length) into
+     * position drawnCount and returns it.
+     */
+
+    int next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No more indices to return.");
+        if (elements != null)
+            return elements[drawnCount++];
+        int randomPosition = drawnCount + BoundedRandom.nextIndex(random, length - drawnCount);
+        int element = elementAt(randomPosition);
+        if (randomPosition != drawnCount)
+            putDisplacedElement(randomPosition, elementAt(drawnCount));
+        removeDisplacedElement(drawnCount);
+        drawnCount++;
+        if (displacedCount > length / DENSE_THRESHOLD_DIVISOR)
+            switchToDenseArray();
+        return element;
+    }
+
+    /**
+     * Copies the undrawn positions into an array holding the element at every position, drops the
+     * map and finishes the Fisher-Yates shuffle of the undrawn range.
+     */
+
+    private void switchToDenseArray() {
+        elements = new int[length];
+        for (int position = drawnCount; position < length; position++)
+            elements[position] = position;
+        for (int slot = 0; slot < displacedPositions.length; slot++)
+            if (displacedPositions[slot] != EMPTY)
+                elements[displacedPositions[slot]] = displacedElements[slot];
+        displacedPositions = null;
+        displacedElements = null;
+        displacedCount = 0;
+        for (int position = drawnCount; position < length - 1; position++) {
+            int randomPosition = position + BoundedRandom.nextIndex(random, length - position);
+            int element = elements[randomPosition];
+            elements[randomPosition] = elements[position];
+            elements[position] = element;
+        }
+    }
+
+    private int elementAt(int position) {
+        if (displacedPositions == null)
+            return position;
+        int slot = findSlot(position);
+        return displacedPositions[slot] == EMPTY ? position : displacedElements[slot];
+    }
+
+    private void putDisplacedElement(int position, int element) {
+        if (displacedPositions == null)
+            allocateMap(INITIAL_MAP_CAPACITY);
+        else if (2 * (displacedCount + 1) > displacedPositions.length)
+            growMap();
+        int slot = findSlot(position);
+        if (displacedPositions[slot] == EMPTY) {
+            displacedPositions[slot] = position;
+            displacedCount++;
+        }
+        displacedElements[slot] = element;
+    }
+
+    /**
+     * Removes the position from the map if it is there, shifting later entries of its probe run
+     * back so that no lookup stops early at the freed slot.
+     */
+
+    private void removeDisplacedElement(int position) {
+        if (displacedPositions == null)
+            return;
+        int slot = findSlot(position);
+        if (displacedPositions[slot] == EMPTY)
+            return;
+        int mask = displacedPositions.length - 1;
+        int next = (slot + 1) & mask;
+        while (displacedPositions[next] != EMPTY) {
+            int home = scramble(displacedPositions[next]) & mask;
+            // Move the entry back unless its home lies cyclically in (slot, next]
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                displacedPositions[slot] = displacedPositions[next];
+                displacedElements[slot] = displacedElements[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        displacedPositions[slot] = EMPTY;
+        displacedCount--;
+    }
+
+    /**
+     * @return The slot holding the position, or the empty slot where it would be inserted.
+     */
+
+    private int findSlot(int position) {
+        int mask = displacedPositions.length - 1;
+        int slot = scramble(position) & mask;
+        while (displacedPositions[slot] != EMPTY && displacedPositions[slot] != position)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int scramble(int value) {
+        value *= 0x9E3779B9;
+        return value ^ (value >>> 16);
+    }
+
+    private void allocateMap(int capacity) {
+        displacedPositions = new int[capacity];
+        displacedElements = new int[capacity];
+        Arrays.fill(displacedPositions, EMPTY);
+    }
+
+    private void growMap() {
+        int[] oldPositions = displacedPositions;
+        int[] oldElements = displacedElements;
+        allocateMap(2 * oldPositions.length);
+        for (int i = 0; i < oldPositions.length; i++) {
+            if (oldPositions[i] != EMPTY) {
+                int slot = findSlot(oldPositions[i]);
+                displacedPositions[slot] = oldPositions[i];
+                displacedElements[slot] = oldElements[i];
+            }
+        }
+    }
+}
@@ -1,33 +1,87 @@
-import edu.princeton.cs.algs4.StdIn;
-import edu.princeton.cs.algs4.StdRandom;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Prints k tokens chosen uniformly at random from standard input, in random order. The input is
+ * sampled in one pass with a Reservoir, so memory stays proportional to k however long it is.
+ *
+ * Given a file instead, it splits the file into byte ranges, samples the tokens starting in each
+ * range on the common fork-join pool, and merges the range reservoirs into one uniform sample.
+ */
 
 public class Permutation {
-    public static void main(String[] args) {
+    private static final long MIN_RANGE_SIZE = 1L << 20;
+
+    /**
+     * Usage: Permutation k [file]
+     */
+
+    public static void main(String[] args) throws IOException {
         int k = Integer.parseInt(args[0]);
-        int i = 0;
-        RandomizedQueue<String> rq = new RandomizedQueue<>();
-        while (!StdIn.isEmpty()) {
-            String str = StdIn.readString();
-            i++;
-            if (rq.size() < k)
-                rq.enqueue(str);
-            else if (shouldKeepNewItem(k, i)) {
-                rq.dequeue();
-                rq.enqueue(str);
-            }
-        }
+        SplittableRandom random = new SplittableRandom();
+        Reservoir<String> reservoir;
+        if (args.length > 1)
+            reservoir = sampleFileTokens(Path.of(args[1]), k, random);
+        else
+            reservoir = Reservoir.sampleTokens(new TokenReader(Channels.newChannel(System.in)), k,
+                    random);
+        RandomizedQueue<String> rq = new RandomizedQueue<>(random);
+        for (String str : reservoir.items())
+            rq.enqueue(str);
         for (String str : rq)
             System.out.println(str);
     }
 
     /**
-     * Returns true with probability k / i and false otherwise. This condition comes from reservoir
-     * sampling, which we need to use to have k amount of maximum space in the queue.
-     * 
-     * @see https://www.geeksforgeeks.org/reservoir-sampling/
+     * Samples each range with its own SplittableRandom split off the given one, then merges the
+     * reservoirs in order.
      */
 
-    private static boolean shouldKeepNewItem(int k, int i) {
-        return (StdRandom.uniform() < (double) k / i);
+    private static Reservoir<String> sampleFileTokens(Path path, int k, SplittableRandom random)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int rangeCount = rangeCount(fileSize);
+            SplittableRandom[] rangeRandoms = new SplittableRandom[rangeCount];
+            for (int i = 0; i < rangeCount; i++)
+                rangeRandoms[i] = random.split();
+            Reservoir<String>[] rangeReservoirs = (Reservoir<String>[]) new Reservoir[rangeCount];
+            try {
+                IntStream.range(0, rangeCount).parallel()
+                        .forEach(i -> rangeReservoirs[i] = sampleRange(channel, fileSize * i
+                                / rangeCount, fileSize * (i + 1) / rangeCount, k, rangeRandoms[i]));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Reservoir<String> reservoir = rangeReservoirs[0];
+            for (int i = 1; i < rangeCount; i++)
+                reservoir = Reservoir.merge(reservoir, rangeReservoirs[i], random);
+            return reservoir;
+        }
+    }
+
+    /**
+     * Enough ranges to keep every processor busy as they finish unevenly, but none so small that
+     * the boundary handling dominates.
+     */
+
+    private static int rangeCount(long fileSize) {
+        int parallelism = 4 * Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(parallelism, fileSize / MIN_RANGE_SIZE));
+    }
+
+    private static Reservoir<String> sampleRange(FileChannel channel, long start, long end, int k,
+            SplittableRandom random) {
+        try {
+            return Reservoir.sampleTokens(new TokenReader(channel, start, end), k, random);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
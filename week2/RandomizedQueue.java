@@ -1,7 +1,12 @@
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import edu.princeton.cs.algs4.StdOut;
-import edu.princeton.cs.algs4.StdRandom;
 
 /**
  * Resizing array implementation of randomized queue data structure.
@@ -10,15 +15,33 @@ import edu.princeton.cs.algs4.StdRandom;
 public class RandomizedQueue<Item> implements Iterable<Item> {
     private Item[] itemsArray;
     private int itemCount;
+    private final RandomGenerator random;
 
     /**
-     * Constructs an empty randomized queue
+     * Constructs an empty randomized queue with its own randomly seeded SplittableRandom.
      */
 
     public RandomizedQueue() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs an empty randomized queue that draws from the given generator, e.g. a seeded
+     * SplittableRandom for reproducible runs or one from RandomGeneratorFactory. The queue does not
+     * synchronize on the generator, so queues used from different threads need their own.
+     */
+
+    public RandomizedQueue(RandomGenerator random) {
+        validateRandom(random);
+        this.random = random;
         itemsArray = (Item[]) new Object[1];
     }
 
+    private void validateRandom(RandomGenerator random) {
+        if (random == null)
+            throw new IllegalArgumentException("Random generator cannot be null.");
+    }
+
     /**
      * Adds the item to the queue.
      */
@@ -32,6 +55,29 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         swapLastItemWithARandomItem();
     }
 
+    /**
+     * Adds all the items to the queue, resizing at most once. Either all items are added or, if
+     * any of them is null, none is.
+     */
+
+    public void enqueueAll(Item[] items) {
+        validateItemsToBeEnqueued(items);
+        if (itemCount + items.length > itemsArray.length)
+            resize(Math.max(2 * itemsArray.length, itemCount + items.length));
+        for (Item item : items) {
+            putItemIntoFirstAvailableIndex(item);
+            itemCount++;
+            swapLastItemWithARandomItem();
+        }
+    }
+
+    private void validateItemsToBeEnqueued(Item[] items) {
+        if (items == null)
+            throw new IllegalArgumentException("enqueueAll() argument cannot be null.");
+        for (Item item : items)
+            validateItemToBeEnqueued(item);
+    }
+
     private void validateItemToBeEnqueued(Item item) {
         if (item == null)
             throw new IllegalArgumentException("enqueue() argument cannot be null.");
@@ -57,21 +103,59 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
 
     public Item dequeue() {
         validateDequeueOperation();
-        Item item = deleteAndReturnLastItem();
+        Item item = deleteAndReturnLastItem(itemCount);
         itemCount--;
         if (isItemCountAtMinThreshold())
             resize(itemsArray.length / 2);
         return item;
     }
 
+    /**
+     * Removes batch.length random items from the queue and stores them in batch, resizing at most
+     * once. The caller passes the array, as with Collection.toArray(T[]), because a generic queue
+     * cannot create an Item[] of the right runtime type itself; reusing one batch array across
+     * calls also avoids allocating per batch.
+     *
+     * @return The batch array.
+     */
+
+    public Item[] dequeue(Item[] batch) {
+        validateBatch(batch);
+        // The items are kept in uniformly random order, so the last k items are a random k-subset.
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = deleteAndReturnLastItem(itemCount - i);
+        itemCount -= batch.length;
+        shrinkIfSparse();
+        return batch;
+    }
+
+    private void validateBatch(Item[] batch) {
+        if (batch == null)
+            throw new IllegalArgumentException("Batch array cannot be null.");
+        if (batch.length > itemCount)
+            throw new NoSuchElementException("Not enough items in the randomized queue.");
+    }
+
+    private void shrinkIfSparse() {
+        int newSize = itemsArray.length;
+        while (itemCount > 0 && itemCount <= newSize / 4)
+            newSize /= 2;
+        if (newSize != itemsArray.length)
+            resize(newSize);
+    }
+
     private void validateDequeueOperation() {
         if (isEmpty())
             throw new NoSuchElementException("The randomized queue is already empty.");
     }
 
-    private Item deleteAndReturnLastItem() {
-        Item lastItem = itemsArray[itemCount - 1];
-        itemsArray[itemCount - 1] = null;
+    /**
+     * Deletes and returns the last of the first count items.
+     */
+
+    private Item deleteAndReturnLastItem(int count) {
+        Item lastItem = itemsArray[count - 1];
+        itemsArray[count - 1] = null;
         return lastItem;
     }
 
@@ -99,6 +183,21 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         return itemsArray[getARandomItemIndex()];
     }
 
+    /**
+     * Stores batch.length distinct random items of the queue in batch, drawn without replacement by
+     * a partial Fisher-Yates shuffle over the item indices. The queue is left unchanged.
+     *
+     * @return The batch array.
+     */
+
+    public Item[] sampleDistinct(Item[] batch) {
+        validateBatch(batch);
+        LazyShuffle itemIndices = new LazyShuffle(itemCount, random);
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = itemsArray[itemIndices.next()];
+        return batch;
+    }
+
     private void validateSampleOperation() {
         if (isEmpty())
             throw new NoSuchElementException("The randomized queue is empty.");
@@ -113,11 +212,12 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     }
 
     private int getARandomItemIndex() {
-        return StdRandom.uniform(0, itemCount);
+        return BoundedRandom.nextIndex(random, itemCount);
     }
 
     /**
-     * @return An independent iterator over items in random order.
+     * @return An independent iterator over items in random order. The order is shuffled lazily, so
+     *         creating the iterator is O(1) and each step is expected O(1).
      */
 
     public Iterator<Item> iterator() {
@@ -125,22 +225,16 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     }
 
     private class RandomizedQueueIterator implements Iterator<Item> {
-        private int currentIndex;
-        private int[] order;
-
-        RandomizedQueueIterator() {
-            order = StdRandom.permutation(itemCount);
-        }
+        private final LazyShuffle order = new LazyShuffle(itemCount, random);
 
         public boolean hasNext() {
-            return currentIndex < itemCount;
+            return order.hasNext();
         }
 
         public Item next() {
             if (!hasNext())
                 throw new NoSuchElementException("No more items to return.");
-            Item item = itemsArray[order[currentIndex++]];
-            return item;
+            return itemsArray[order.next()];
         }
 
         public void remove() {
@@ -149,6 +243,63 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
     }
 
+    /**
+     * @return A spliterator that splits the backing array into halves. It visits the items in
+     *         storage order, which is a uniformly random arrangement, since each enqueued item
+     *         swaps places with a random one; unlike iterator(), it is the same order every time.
+     */
+
+    public Spliterator<Item> spliterator() {
+        return new RandomizedQueueSpliterator(0, itemCount);
+    }
+
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Item> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    private class RandomizedQueueSpliterator implements Spliterator<Item> {
+        private int currentIndex;
+        private final int fence; // Index in itemsArray one past the last item to visit
+
+        RandomizedQueueSpliterator(int origin, int fence) {
+            currentIndex = origin;
+            this.fence = fence;
+        }
+
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (currentIndex >= fence)
+                return false;
+            action.accept(itemsArray[currentIndex++]);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Item> action) {
+            while (currentIndex < fence)
+                action.accept(itemsArray[currentIndex++]);
+        }
+
+        public Spliterator<Item> trySplit() {
+            int middleIndex = (currentIndex + fence) >>> 1;
+            if (middleIndex == currentIndex)
+                return null;
+            Spliterator<Item> prefix = new RandomizedQueueSpliterator(currentIndex, middleIndex);
+            currentIndex = middleIndex;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return fence - currentIndex;
+        }
+
+        public int characteristics() {
+            return SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     public static void main(String[] args) {
         RandomizedQueue<Integer> q = new RandomizedQueue<>();
         q.enqueue(1);
@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Uniform random sample of k items from a stream of unknown length, kept by Li's Algorithm L.
+ * Instead of drawing a random number for every item, as the classic reservoir algorithm does, it
+ * draws the number of items to skip until the next one that enters the reservoir. Over a stream of
+ * N items that is O(k log(N / k)) random draws, and a source that can skip items cheaply, such as
+ * TokenReader, can pass over the skipped ones without materializing them.
+ *
+ * Reservoirs of disjoint streams can be merged into a reservoir of their concatenation, exactly as
+ * if it had been sampled in one pass, so separate parts of the input can be sampled in parallel or
+ * at different times.
+ */
+
+public class Reservoir<Item> {
+    private final Item[] items;
+    private final RandomGenerator random;
+    private long populationSize; // Number of items offered or skipped so far
+    private long nextKeptPosition; // 1-based position in the stream of the next item to keep
+    private double w; // Largest key kept, with the k smallest uniform keys kept, as in Algorithm L
+
+    /**
+     * Constructs an empty reservoir that keeps up to k items.
+     */
+
+    public Reservoir(int k, RandomGenerator random) {
+        validateArguments(k, random);
+        items = (Item[]) new Object[k];
+        this.random = random;
+        nextKeptPosition = k == 0 ? Long.MAX_VALUE : 1;
+    }
+
+    private void validateArguments(int k, RandomGenerator random) {
+        if (k < 0)
+            throw new IllegalArgumentException("Sample size cannot be negative.");
+        if (random == null)
+            throw new IllegalArgumentException("Random generator cannot be null.");
+    }
+
+    /**
+     * @return A uniform random sample of up to k tokens of the reader, read to its end.
+     */
+
+    public static Reservoir<String> sampleTokens(TokenReader reader, int k, RandomGenerator random)
+            throws IOException {
+        Reservoir<String> reservoir = new Reservoir<>(k, random);
+        while (true) {
+            long toSkip = reservoir.itemsToSkip();
+            long skippedCount = reader.skipTokens(toSkip);
+            reservoir.skip(skippedCount);
+            if (skippedCount < toSkip)
+                break;
+            String token = reader.readToken();
+            if (token == null)
+                break;
+            reservoir.offer(token);
+        }
+        return reservoir;
+    }
+
+    /**
+     * @return The number of upcoming items that would not enter the reservoir, which the caller may
+     *         pass to skip() instead of offering them one by one.
+     */
+
+    public long itemsToSkip() {
+        return nextKeptPosition - populationSize - 1;
+    }
+
+    /**
+     * Counts the next count items of the stream without looking at them. Only valid for count up to
+     * itemsToSkip().
+     */
+
+    public void skip(long count) {
+        if (count < 0 || count > itemsToSkip())
+            throw new IllegalArgumentException("Can only skip up to itemsToSkip() items.");
+        populationSize += count;
+    }
+
+    /**
+     * Offers the next item of the stream.
+     */
+
+    public void offer(Item item) {
+        validateItemToBeOffered(item);
+        populationSize++;
+        if (populationSize != nextKeptPosition)
+            return;
+        if (populationSize <= items.length) {
+            items[(int) populationSize - 1] = item;
+            if (populationSize == items.length)
+                w = Math.exp(Math.log(nextUniform()) / items.length);
+        } else {
+            items[random.nextInt(items.length)] = item;
+            w *= Math.exp(Math.log(nextUniform()) / items.length);
+        }
+        nextKeptPosition = populationSize + 1;
+        if (populationSize >= items.length)
+            nextKeptPosition = saturatedAdd(nextKeptPosition, drawSkipCount());
+    }
+
+    private void validateItemToBeOffered(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("offer() argument cannot be null.");
+    }
+
+    /**
+     * The number of items skipped before the next kept one is geometric with success probability w.
+     */
+
+    private long drawSkipCount() {
+        double skipCount = Math.floor(Math.log(nextUniform()) / Math.log1p(-w));
+        return skipCount >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) skipCount;
+    }
+
+    /**
+     * @return A uniform random double in (0, 1], whose logarithm is always finite.
+     */
+
+    private double nextUniform() {
+        return 1.0 - random.nextDouble();
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < a ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Merges reservoirs of two disjoint streams that keep the same number of items. The number of
+     * items taken from the first is hypergeometric, drawn one item at a time in proportion to the
+     * unpicked remainder of each population, and the items themselves are picked uniformly from
+     * each sample. The result can go on taking items as if it had sampled both streams itself.
+     *
+     * @return A reservoir of the concatenation of both streams, which uses the given generator.
+     */
+
+    public static <Item> Reservoir<Item> merge(Reservoir<Item> reservoir1,
+            Reservoir<Item> reservoir2, RandomGenerator random) {
+        validateMergeArguments(reservoir1, reservoir2);
+        int k = reservoir1.items.length;
+        Reservoir<Item> merged = new Reservoir<>(k, random);
+        long remaining1 = reservoir1.populationSize;
+        long remaining2 = reservoir2.populationSize;
+        merged.populationSize = remaining1 + remaining2;
+        int sampleSize = (int) Math.min(k, merged.populationSize);
+        int takenCount1 = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            if (random.nextLong(remaining1 + remaining2) < remaining1) {
+                takenCount1++;
+                remaining1--;
+            } else {
+                remaining2--;
+            }
+        }
+        reservoir1.copyRandomItemsTo(merged.items, 0, takenCount1, random);
+        reservoir2.copyRandomItemsTo(merged.items, takenCount1, sampleSize - takenCount1, random);
+        merged.resumeAfterPopulation();
+        return merged;
+    }
+
+    private static <Item> void validateMergeArguments(Reservoir<Item> reservoir1,
+            Reservoir<Item> reservoir2) {
+        if (reservoir1 == null || reservoir2 == null)
+            throw new IllegalArgumentException("Reservoirs cannot be null.");
+        if (reservoir1.items.length != reservoir2.items.length)
+            throw new IllegalArgumentException("Reservoirs must keep the same number of items.");
+    }
+
+    /**
+     * Copies count distinct items picked uniformly by a partial Fisher-Yates shuffle of a copy.
+     */
+
+    private void copyRandomItemsTo(Item[] target, int targetStart, int count,
+            RandomGenerator random) {
+        Item[] sample = Arrays.copyOf(items, (int) Math.min(items.length, populationSize));
+        for (int i = 0; i < count; i++) {
+            int picked = i + random.nextInt(sample.length - i);
+            Item item = sample[picked];
+            sample[picked] = sample[i];
+            target[targetStart + i] = item;
+        }
+    }
+
+    /**
+     * Sets the state Algorithm L would have after the current population. Once the reservoir is
+     * full, w is the k-th smallest of populationSize uniform keys whatever items were kept. It is
+     * drawn in k steps from the bottom up: the keys above the i-th smallest are uniform between it
+     * and 1, so the gap from the next one to 1 is the previous gap times the largest of
+     * populationSize - i uniforms.
+     */
+
+    private void resumeAfterPopulation() {
+        if (items.length == 0)
+            return;
+        nextKeptPosition = populationSize + 1;
+        if (populationSize < items.length)
+            return;
+        double logGapAboveKey = 0.0;
+        for (int i = 0; i < items.length; i++)
+            logGapAboveKey += Math.log(nextUniform()) / (populationSize - i);
+        w = -Math.expm1(logGapAboveKey);
+        nextKeptPosition = saturatedAdd(nextKeptPosition, drawSkipCount());
+    }
+
+    /**
+     * @return The number of items the stream has had so far.
+     */
+
+    public long populationSize() {
+        return populationSize;
+    }
+
+    /**
+     * @return The sampled items, min(k, populationSize()) of them, in no particular order.
+     */
+
+    public List<Item> items() {
+        int sampleSize = (int) Math.min(items.length, populationSize);
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(items, sampleSize)));
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads whitespace-separated tokens from a byte channel through one reusable buffer. Tokens are
+ * decoded as UTF-8 only when readToken() returns them; skipTokens() just scans the bytes, so
+ * skipped tokens cost no allocation at all.
+ *
+ * Any byte up to and including ' ' (space, tab, newline and the other ASCII control characters)
+ * separates tokens. Unlike StdIn, non-ASCII whitespace such as U+00A0 is part of a token.
+ *
+ * A reader can also be limited to the tokens of a file that start within a byte range, using
+ * positional reads so that readers of different ranges can share one FileChannel across threads.
+ * Each token belongs to exactly one range: the one in which its first byte lies.
+ */
+
+public class TokenReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_TOKEN_CAPACITY = 64;
+    private final ReadableByteChannel channel;
+    private final FileChannel fileChannel; // Null unless reading a range with positional reads
+    private final long endOffset; // Tokens starting at or after this byte offset are not read
+    private final byte[] bufferBytes = new byte[BUFFER_SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bufferBytes);
+    private int position; // Index in bufferBytes of the next unread byte
+    private int limit; // Index in bufferBytes one past the last valid byte
+    private byte[] tokenBytes = new byte[INITIAL_TOKEN_CAPACITY]; // For tokens that span refills
+    private long bufferOffset; // Offset in the input of bufferBytes[0]
+    private long nextReadOffset; // Offset in the input of the next byte to read from the channel
+
+    public TokenReader(ReadableByteChannel channel) {
+        validateChannel(channel);
+        this.channel = channel;
+        fileChannel = null;
+        endOffset = Long.MAX_VALUE;
+    }
+
+    /**
+     * Creates a reader of the tokens of the file that start at byte offsets in [start, end). The
+     * last of them is read to its end even if that lies beyond end. The reader does not move the
+     * position of the channel.
+     */
+
+    public TokenReader(FileChannel channel, long start, long end) throws IOException {
+        validateChannel(channel);
+        validateRange(start, end);
+        this.channel = channel;
+        fileChannel = channel;
+        endOffset = end;
+        bufferOffset = start;
+        nextReadOffset = start;
+        if (start > 0 && !isWhitespace(readByteBefore(start)))
+            skipTokenBytes();
+    }
+
+    private void validateChannel(ReadableByteChannel channel) {
+        if (channel == null)
+            throw new IllegalArgumentException("Channel cannot be null.");
+    }
+
+    private void validateRange(long start, long end) {
+        if (start < 0 || start > end)
+            throw new IllegalArgumentException("Range must satisfy 0 <= start <= end.");
+    }
+
+    private byte readByteBefore(long offset) throws IOException {
+        ByteBuffer previousByte = ByteBuffer.allocate(1);
+        if (fileChannel.read(previousByte, offset - 1) < 1)
+            throw new IOException("Range starts beyond the end of the file.");
+        return previousByte.get(0);
+    }
+
+    /**
+     * Skips the rest of a token that began before the range, which belongs to the previous range.
+     */
+
+    private void skipTokenBytes() throws IOException {
+        skipTokenBytesInBuffer();
+        while (position == limit && refill())
+            skipTokenBytesInBuffer();
+    }
+
+    /**
+     * @return The next token, or null if no tokens are left.
+     */
+
+    public String readToken() throws IOException {
+        if (!skipWhitespace())
+            return null;
+        int start = position;
+        skipTokenBytesInBuffer();
+        if (position < limit)
+            return new String(bufferBytes, start, position - start, StandardCharsets.UTF_8);
+        int length = 0;
+        while (true) {
+            length = appendToToken(length, start, position);
+            if (!refill())
+                break;
+            start = position;
+            skipTokenBytesInBuffer();
+            if (position < limit) {
+                length = appendToToken(length, start, position);
+                break;
+            }
+        }
+        return new String(tokenBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int appendToToken(int length, int start, int end) {
+        int newLength = length + end - start;
+        if (newLength > tokenBytes.length)
+            tokenBytes = Arrays.copyOf(tokenBytes, Math.max(newLength, 2 * tokenBytes.length));
+        System.arraycopy(bufferBytes, start, tokenBytes, length, end - start);
+        return newLength;
+    }
+
+    /**
+     * Skips up to count tokens without decoding them.
+     *
+     * @return The number of tokens skipped, which is less than count only if the input or
+     *         the range ran out.
+     */
+
+    public long skipTokens(long count) throws IOException {
+        validateSkipCount(count);
+        long skippedCount = 0;
+        while (skippedCount < count && skipWhitespace()) {
+            skipTokenBytes();
+            skippedCount++;
+        }
+        return skippedCount;
+    }
+
+    private void validateSkipCount(long count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Number of tokens to skip cannot be negative.");
+    }
+
+    /**
+     * Moves to the next token byte, refilling the buffer as needed.
+     *
+     * @return false if the input ran out first, or the next token starts at or after the end of
+     *         the range.
+     */
+
+    private boolean skipWhitespace() throws IOException {
+        while (true) {
+            while (position < limit) {
+                if (!isWhitespace(bufferBytes[position]))
+                    return bufferOffset + position < endOffset;
+                position++;
+            }
+            if (!refill())
+                return false;
+        }
+    }
+
+    /**
+     * Moves past the token bytes in the buffer, stopping at whitespace or the end of the buffer.
+     */
+
+    private void skipTokenBytesInBuffer() {
+        while (position < limit && !isWhitespace(bufferBytes[position]))
+            position++;
+    }
+
+    /**
+     * Bytes of multi-byte UTF-8 sequences are negative, so they never count as whitespace.
+     */
+
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Replaces the buffer contents with the next bytes of the channel.
+     *
+     * @return false if the channel has no more bytes.
+     */
+
+    private boolean refill() throws IOException {
+        buffer.clear();
+        int readCount;
+        do {
+            readCount = fileChannel == null ? channel.read(buffer)
+                    : fileChannel.read(buffer, nextReadOffset);
+        } while (readCount == 0);
+        bufferOffset = nextReadOffset;
+        nextReadOffset += Math.max(readCount, 0);
+        position = 0;
+        limit = Math.max(readCount, 0);
+        return readCount > 0;
+    }
+
+    /**
+     * Closes the channel, which range readers sharing it must not do while others still read.
+     */
+
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Randomized queue in which sample() and dequeue() pick each item with probability proportional to
+ * its weight. Items live in slots identified by handles, which enqueue() returns and which stay
+ * valid until the item is dequeued; freed slots are reused by later items.
+ *
+ * The weights are kept in a Fenwick (binary indexed) tree, so enqueuing, updating a weight and
+ * drawing an item all take O(log n) time. A draw descends the tree to the slot whose range of
+ * cumulative weight contains a uniform random number. Rounding error from repeated updates can
+ * land it on a free slot, in which case the tree is rebuilt from the exact weights and the draw
+ * repeated.
+ */
+
+public class WeightedRandomizedQueue<Item> {
+    private static final int MIN_CAPACITY = 8;
+    private Item[] itemsArray; // Null in free slots
+    private double[] weights; // 0 in free slots
+    private double[] fenwickTree; // fenwickTree[i] sums the weights of slots (i - (i & -i), i]
+    private int[] freeSlots; // Stack of freed slots below usedSlotCount
+    private int freeSlotCount;
+    private int usedSlotCount; // Slots at or above this index have never been used
+    private int itemCount;
+    private final RandomGenerator random;
+
+    /**
+     * Constructs an empty queue with its own randomly seeded SplittableRandom.
+     */
+
+    public WeightedRandomizedQueue() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs an empty queue that draws from the given generator.
+     */
+
+    public WeightedRandomizedQueue(RandomGenerator random) {
+        validateRandom(random);
+        this.random = random;
+        itemsArray = (Item[]) new Object[MIN_CAPACITY];
+        weights = new double[MIN_CAPACITY];
+        fenwickTree = new double[MIN_CAPACITY + 1];
+        freeSlots = new int[MIN_CAPACITY];
+    }
+
+    private void validateRandom(RandomGenerator random) {
+        if (random == null)
+            throw new IllegalArgumentException("Random generator cannot be null.");
+    }
+
+    /**
+     * Adds the item with the given weight.
+     *
+     * @return The handle of the item, for updateWeight().
+     */
+
+    public int enqueue(Item item, double weight) {
+        validateItemToBeEnqueued(item);
+        validateWeight(weight);
+        int slot = takeFreeSlot();
+        itemsArray[slot] = item;
+        setWeight(slot, weight);
+        itemCount++;
+        return slot;
+    }
+
+    private void validateItemToBeEnqueued(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("enqueue() argument cannot be null.");
+    }
+
+    private void validateWeight(double weight) {
+        if (!(weight > 0) || Double.isInfinite(weight))
+            throw new IllegalArgumentException("Weight must be positive and finite.");
+    }
+
+    private int takeFreeSlot() {
+        if (freeSlotCount > 0)
+            return freeSlots[--freeSlotCount];
+        if (usedSlotCount == itemsArray.length)
+            resize(2 * itemsArray.length);
+        return usedSlotCount++;
+    }
+
+    private void resize(int newCapacity) {
+        Item[] tempItems = (Item[]) new Object[newCapacity];
+        double[] tempWeights = new double[newCapacity];
+        int[] tempFreeSlots = new int[newCapacity];
+        for (int slot = 0; slot < usedSlotCount; slot++) {
+            tempItems[slot] = itemsArray[slot];
+            tempWeights[slot] = weights[slot];
+        }
+        System.arraycopy(freeSlots, 0, tempFreeSlots, 0, freeSlotCount);
+        itemsArray = tempItems;
+        weights = tempWeights;
+        freeSlots = tempFreeSlots;
+        rebuildFenwickTree();
+    }
+
+    /**
+     * Builds the tree from the weights in linear time, by adding each node into its parent once
+     * its own sum is complete.
+     */
+
+    private void rebuildFenwickTree() {
+        fenwickTree = new double[weights.length + 1];
+        for (int node = 1; node <= weights.length; node++) {
+            fenwickTree[node] += weights[node - 1];
+            int parent = node + (node & -node);
+            if (parent <= weights.length)
+                fenwickTree[parent] += fenwickTree[node];
+        }
+    }
+
+    /**
+     * Changes the weight of the item with the given handle.
+     */
+
+    public void updateWeight(int handle, double weight) {
+        validateHandle(handle);
+        validateWeight(weight);
+        setWeight(handle, weight);
+    }
+
+    private void validateHandle(int handle) {
+        if (handle < 0 || handle >= usedSlotCount || itemsArray[handle] == null)
+            throw new IllegalArgumentException("Handle does not refer to an item in the queue.");
+    }
+
+    private void setWeight(int slot, double weight) {
+        double delta = weight - weights[slot];
+        weights[slot] = weight;
+        for (int node = slot + 1; node <= weights.length; node += node & -node)
+            fenwickTree[node] += delta;
+    }
+
+    /**
+     * Removes and returns a random item, picked with probability proportional to its weight. Its
+     * handle becomes invalid.
+     */
+
+    public Item dequeue() {
+        validateDequeueOperation();
+        int slot = drawSlot();
+        Item item = itemsArray[slot];
+        itemsArray[slot] = null;
+        setWeight(slot, 0.0);
+        freeSlots[freeSlotCount++] = slot;
+        itemCount--;
+        return item;
+    }
+
+    private void validateDequeueOperation() {
+        if (isEmpty())
+            throw new NoSuchElementException("The randomized queue is already empty.");
+    }
+
+    /**
+     * Returns a random item without removing it, picked with probability proportional to its
+     * weight.
+     */
+
+    public Item sample() {
+        validateSampleOperation();
+        return itemsArray[drawSlot()];
+    }
+
+    private void validateSampleOperation() {
+        if (isEmpty())
+            throw new NoSuchElementException("The randomized queue is empty.");
+    }
+
+    /**
+     * Descends the Fenwick tree from its top node, keeping the target below the weight of the
+     * subtree it enters. Free slots have weight 0 and are only reached through rounding error.
+     */
+
+    private int drawSlot() {
+        while (true) {
+            double target = random.nextDouble() * totalWeight();
+            int node = 0;
+            for (int step = Integer.highestOneBit(weights.length); step > 0; step >>= 1) {
+                if (node + step <= weights.length && fenwickTree[node + step] <= target) {
+                    node += step;
+                    target -= fenwickTree[node];
+                }
+            }
+            if (node < usedSlotCount && itemsArray[node] != null)
+                return node;
+            rebuildFenwickTree();
+        }
+    }
+
+    /**
+     * @return The sum of all weights, read off the tree so it agrees with the sums drawSlot() uses.
+     */
+
+    private double totalWeight() {
+        double sum = 0.0;
+        for (int node = weights.length; node > 0; node -= node & -node)
+            sum += fenwickTree[node];
+        return sum;
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    public static void main(String[] args) {
+        WeightedRandomizedQueue<String> queue = new WeightedRandomizedQueue<>();
+        queue.enqueue("rare", 1.0);
+        int common = queue.enqueue("common", 1.0);
+        queue.updateWeight(common, 9.0);
+        int commonCount = 0;
+        for (int i = 0; i < 10000; i++)
+            if (queue.sample().equals("common"))
+                commonCount++;
+        StdOut.println("common sampled " + commonCount + " times out of 10000");
+        while (!queue.isEmpty())
+            StdOut.println("op. " + queue.dequeue());
+    }
+}
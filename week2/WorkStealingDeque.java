@@ -0,0 +1,174 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Chase-Lev work-stealing deque. A single owner thread pushes and pops items at the bottom without
+ * locks, while any number of thief threads steal items from the top, competing with a
+ * compareAndSet on the top index. Only the last remaining item is ever contended between the owner
+ * and the thieves. The circular array grows when full; thieves that still hold the old array read
+ * the same items from it, because growing copies them to the same logical indices.
+ *
+ * Whoever takes an item clears its slot, so the deque does not keep finished tasks reachable. A
+ * thief clears the slot in the array it read the item from, with compareAndSet after winning top.
+ * The owner never writes into a slot that is not yet cleared (it grows instead), so a late clear
+ * can never erase a newly pushed item, even one pushed twice.
+ *
+ * push() and pop() must only be called by the owner thread. steal() and size() may be called by
+ * any thread.
+ */
+
+public class WorkStealingDeque<Item> {
+    private static final int MIN_CAPACITY = 16;
+    private final AtomicLong top = new AtomicLong(); // Logical index of the next item to steal
+    private volatile long bottom; // Logical index one past the item to pop; written by owner only
+    private volatile CircularArray<Item> itemsArray = new CircularArray<>(MIN_CAPACITY);
+
+    private static class CircularArray<Item> {
+        private final AtomicReferenceArray<Item> items;
+        private final int mask;
+
+        CircularArray(int capacity) {
+            items = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        Item get(long index) {
+            return items.get((int) index & mask);
+        }
+
+        void put(long index, Item item) {
+            items.set((int) index & mask, item);
+        }
+
+        void clear(long index, Item item) {
+            items.compareAndSet((int) index & mask, item, null);
+        }
+
+        CircularArray<Item> grow(long top, long bottom) {
+            CircularArray<Item> grownArray = new CircularArray<>(2 * capacity());
+            for (long i = top; i < bottom; i++)
+                grownArray.put(i, get(i));
+            return grownArray;
+        }
+    }
+
+    /**
+     * Adds the item at the bottom. Owner thread only.
+     */
+
+    public void push(Item item) {
+        validateItemToBePushed(item);
+        long b = bottom;
+        long t = top.get();
+        CircularArray<Item> array = itemsArray;
+        // The slot may still hold an item a thief has taken but not yet cleared
+        if (b - t >= array.capacity() || array.get(b) != null) {
+            CircularArray<Item> oldArray = array;
+            array = oldArray.grow(t, b);
+            itemsArray = array;
+            clearItemsStolenDuringGrowth(oldArray, array, t, b);
+        }
+        array.put(b, item);
+        bottom = b + 1;
+    }
+
+    /**
+     * Items stolen from the old array while it was being copied stay behind in the new one, since
+     * thieves only clear the array they read from. A cleared old slot proves its item was taken
+     * from the old array, so no thief will touch the copy and the owner clears it. A thief still
+     * between its compareAndSet and its clear leaves one stale copy, which push() grows past.
+     */
+
+    private void clearItemsStolenDuringGrowth(CircularArray<Item> oldArray,
+            CircularArray<Item> newArray, long from, long to) {
+        for (long i = from; i < to; i++)
+            if (oldArray.get(i) == null)
+                newArray.put(i, null);
+    }
+
+    private void validateItemToBePushed(Item item) {
+        if (item == null)
+            throw new IllegalArgumentException("Cannot push null item.");
+    }
+
+    /**
+     * Removes and returns the bottom item, the one pushed most recently. Owner thread only.
+     *
+     * @return The item, or null if the deque is empty or a thief took the last item first.
+     */
+
+    public Item pop() {
+        long b = bottom - 1;
+        CircularArray<Item> array = itemsArray;
+        bottom = b; // Publishing the claim before reading top makes thieves see it
+        long t = top.get();
+        if (t > b) {
+            bottom = t; // Empty: restore bottom to the canonical empty state
+            return null;
+        }
+        Item item = array.get(b);
+        if (t == b) {
+            // Last item: race thieves for it through top, as they do among themselves
+            boolean won = top.compareAndSet(t, t + 1);
+            bottom = t + 1;
+            if (!won)
+                return null; // The winning thief clears the slot
+        }
+        array.put(b, null);
+        return item;
+    }
+
+    /**
+     * Removes and returns the top item, the one pushed least recently. Any thread.
+     *
+     * @return The item, or null if the deque is empty or another thread took the item first.
+     */
+
+    public Item steal() {
+        long t = top.get();
+        long b = bottom;
+        if (t >= b)
+            return null;
+        CircularArray<Item> array = itemsArray;
+        Item item = array.get(t);
+        // A thief that read a stale top, or a slot already cleared, fails here
+        if (!top.compareAndSet(t, t + 1))
+            return null;
+        array.clear(t, item);
+        return item;
+    }
+
+    /**
+     * @return An estimate of the number of items, exact when no operation is in progress.
+     */
+
+    public int size() {
+        long size = bottom - top.get();
+        return (int) Math.max(0, size);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        WorkStealingDeque<Integer> deque = new WorkStealingDeque<>();
+        for (int i = 0; i < 100; i++)
+            deque.push(i);
+        Thread thief = new Thread(() -> {
+            Integer item;
+            while ((item = deque.steal()) != null)
+                StdOut.println("stolen " + item);
+        });
+        thief.start();
+        Integer item;
+        while ((item = deque.pop()) != null)
+            StdOut.println("popped " + item);
+        thief.join();
+    }
+}
@@ -5,6 +5,8 @@ import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.In;
 
 public class FastCollinearPoints {
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
     private LineSegment[] segments;
 
     /**
@@ -46,14 +48,135 @@ public class FastCollinearPoints {
 
     private void findCollinearPointsAndCreateLineSegments(Point[] points) {
         ArrayList<LineSegment> segmentList = new ArrayList<>();
+        if (Point.supportSlopeKeys(points))
+            findSegmentsBySlopeKeys(segmentList, points);
+        else
+            findSegmentsBySlopeOrder(segmentList, points);
+        segments = new LineSegment[segmentList.size()];
+        segments = segmentList.toArray(segments);
+    }
+
+    /**
+     * Computes the slopes from each pivot once, as exact integer keys, and radix sorts them
+     * together with the indices of their points, so that points on a line through the pivot end up
+     * in one run of equal keys.
+     */
+
+    private void findSegmentsBySlopeKeys(ArrayList<LineSegment> segmentList, Point[] points) {
+        int otherCount = points.length - 1;
+        long[] slopeKeys = new long[otherCount];
+        int[] otherIndices = new int[otherCount];
+        long[] tempKeys = new long[otherCount];
+        int[] tempIndices = new int[otherCount];
+        for (int i = 0; i < points.length; i++) {
+            int k = 0;
+            for (int j = 0; j < points.length; j++) {
+                if (j != i) {
+                    slopeKeys[k] = points[i].slopeKeyTo(points[j]);
+                    otherIndices[k++] = j;
+                }
+            }
+            radixSort(slopeKeys, otherIndices, tempKeys, tempIndices);
+            createSegmentsFromSortedSlopeKeys(segmentList, points, i, slopeKeys, otherIndices);
+        }
+    }
+
+    /**
+     * LSD radix sort of the keys as unsigned longs, one byte per pass, moving each index along
+     * with its key. Only equal keys need to end up adjacent, so the unsigned order is as good as
+     * the slope order. A pass is skipped when all keys share its byte, as the high bytes of the
+     * dy half of nearby points usually do.
+     */
+
+    private static void radixSort(long[] keys, int[] indices, long[] tempKeys, int[] tempIndices) {
+        int passCount = Long.SIZE / RADIX_BITS;
+        int[][] digitCounts = new int[passCount][RADIX + 1];
+        for (long key : keys)
+            for (int pass = 0; pass < passCount; pass++)
+                digitCounts[pass][digitOf(key, pass) + 1]++;
+        long[] sourceKeys = keys, targetKeys = tempKeys;
+        int[] sourceIndices = indices, targetIndices = tempIndices;
+        for (int pass = 0; pass < passCount; pass++) {
+            int[] starts = digitCounts[pass];
+            if (hasSingleDigit(starts, keys.length))
+                continue;
+            for (int digit = 0; digit < RADIX; digit++)
+                starts[digit + 1] += starts[digit];
+            for (int i = 0; i < keys.length; i++) {
+                int target = starts[digitOf(sourceKeys[i], pass)]++;
+                targetKeys[target] = sourceKeys[i];
+                targetIndices[target] = sourceIndices[i];
+            }
+            long[] swappedKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swappedKeys;
+            int[] swappedIndices = sourceIndices;
+            sourceIndices = targetIndices;
+            targetIndices = swappedIndices;
+        }
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, 0, keys, 0, keys.length);
+            System.arraycopy(sourceIndices, 0, indices, 0, indices.length);
+        }
+    }
+
+    private static int digitOf(long key, int pass) {
+        return (int) (key >>> (pass * RADIX_BITS)) & (RADIX - 1);
+    }
+
+    /**
+     * @param counts the number of keys with each digit, offset by one
+     */
+
+    private static boolean hasSingleDigit(int[] counts, int keyCount) {
+        for (int digit = 1; digit <= RADIX; digit++)
+            if (counts[digit] == keyCount)
+                return true;
+        return false;
+    }
+
+    private void createSegmentsFromSortedSlopeKeys(ArrayList<LineSegment> segmentList,
+            Point[] points, int pivotIndex, long[] sortedKeys, int[] sortedIndices) {
+        int lo = 0;
+        for (int hi = 1; hi <= sortedKeys.length; hi++) {
+            if (hi == sortedKeys.length || sortedKeys[hi] != sortedKeys[lo]) {
+                // Keys lo to hi - 1 are equal, so their points and the pivot lie on one line.
+                if (hi - lo >= 3)
+                    handleSegmentCreationFromIndices(segmentList, points, pivotIndex,
+                            sortedIndices, lo, hi - 1);
+                lo = hi;
+            }
+        }
+    }
+
+    private void handleSegmentCreationFromIndices(ArrayList<LineSegment> segmentList,
+            Point[] points, int pivotIndex, int[] indices, int lo, int hi) {
+        Point minPoint = points[indices[lo]];
+        Point maxPoint = points[indices[lo]];
+        for (int i = lo + 1; i <= hi; i++) {
+            Point point = points[indices[i]];
+            if (point.compareTo(minPoint) < 0)
+                minPoint = point;
+            if (point.compareTo(maxPoint) > 0)
+                maxPoint = point;
+        }
+        if (points[pivotIndex].compareTo(minPoint) < 0)
+            segmentList.add(new LineSegment(points[pivotIndex], maxPoint));
+        // Otherwise the segment is added when its minimum point is the pivot.
+    }
+
+    /**
+     * Sorts the other points by slopeOrder() for each pivot. Used when coordinates are too far
+     * apart for exact slope keys.
+     */
+
+    private void findSegmentsBySlopeOrder(ArrayList<LineSegment> segmentList, Point[] points) {
         for (int i = 0; i < points.length; i++) {
             Point currentPoint = points[i];
             Point[] otherPoints = copyPointsExcludingOne(points, i);
             sortPointsWRTSlopeWithPivot(otherPoints, currentPoint);
             createSegmentsFromSortedPoints(segmentList, otherPoints, currentPoint);
         }
-        segments = new LineSegment[segmentList.size()];
-        segments = segmentList.toArray(segments);
     }
 
     private Point[] copyPointsExcludingOne(Point[] points, int excludedIndex) {
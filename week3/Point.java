@@ -72,6 +72,65 @@ public class Point implements Comparable<Point> {
         return (double) yDiff / (double) xDiff;
     }
 
+    /**
+     * Returns an exact key for the slope between this point and the specified point: two keys
+     * are equal if and only if the slopes are. The key packs the direction (dy, dx) between the
+     * points, reduced by their greatest common divisor and oriented so that dx > 0, into the high
+     * and low halves of a long. Vertical segments get (1, 0) and horizontal ones (0, 1). The
+     * coordinate differences must fit in an int.
+     *
+     * @param that the other point, which must differ from this point
+     * @return the slope key between this point and the specified point
+     */
+
+    long slopeKeyTo(Point that) {
+        int dx = that.x - x;
+        int dy = that.y - y;
+        if (dx == 0)
+            return packSlopeKey(1, 0);
+        if (dy == 0)
+            return packSlopeKey(0, 1);
+        if (dx < 0) {
+            dx = -dx;
+            dy = -dy;
+        }
+        int divisor = greatestCommonDivisor(Math.abs(dy), dx);
+        return packSlopeKey(dy / divisor, dx / divisor);
+    }
+
+    /**
+     * Returns true if slopeKeyTo() can be used between any two of the points, which is when both
+     * their x-coordinates and their y-coordinates span at most Integer.MAX_VALUE.
+     *
+     * @param points the points
+     * @return whether every coordinate difference between the points fits in an int
+     */
+
+    static boolean supportSlopeKeys(Point[] points) {
+        long minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        long minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (Point point : points) {
+            minX = Math.min(minX, point.x);
+            maxX = Math.max(maxX, point.x);
+            minY = Math.min(minY, point.y);
+            maxY = Math.max(maxY, point.y);
+        }
+        return maxX - minX <= Integer.MAX_VALUE && maxY - minY <= Integer.MAX_VALUE;
+    }
+
+    private static long packSlopeKey(int dy, int dx) {
+        return ((long) dy << 32) | dx;
+    }
+
+    private static int greatestCommonDivisor(int a, int b) {
+        while (b != 0) {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
     /**
      * Compares two points by y-coordinate, breaking ties by x-coordinate. Formally, the invoking
      * point (x0, y0) is less than the argument point (x1, y1) if and only if either y0 < y1 or if